@@ -21,14 +21,27 @@ export async function apiGet(endpoint) {
   return { ok: res.ok, status: res.status, data };
 }
 
-export async function apiPost(endpoint, body) {
+export async function apiPost(endpoint, body, headers) {
   const url = `${API_BASE}${endpoint}`;
   const res = await fetch(url, {
     method: "POST",
     credentials: "include",
-    headers: { "Content-Type": "application/json" },
+    headers: { "Content-Type": "application/json", ...(headers ?? {}) },
     body: JSON.stringify(body ?? {}),
   });
   const data = await parseSafe(res);
   return { ok: res.ok, status: res.status, data };
 }
+
+// Ключ для заголовка Idempotency-Key: один и тот же на все повторы одного действия,
+// новый — как только меняется тело запроса. holder — объект из useRef.
+export function idempotencyKey(holder, body) {
+  const fingerprint = JSON.stringify(body ?? {});
+  if (!holder.current || holder.current.fingerprint !== fingerprint) {
+    const key = typeof crypto !== "undefined" && crypto.randomUUID
+      ? crypto.randomUUID()
+      : `${Date.now()}-${Math.random().toString(36).slice(2)}`;
+    holder.current = { key, fingerprint };
+  }
+  return { "Idempotency-Key": holder.current.key };
+}
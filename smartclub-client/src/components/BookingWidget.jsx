@@ -1,6 +1,6 @@
 // src/components/BookingWidget.jsx
 import React, { useEffect, useMemo, useRef, useState } from "react";
-import { apiPost } from "../api/api.js";
+import { apiPost, idempotencyKey } from "../api/api.js";
 import { useAuth } from "../context/AuthContext";
 import { useUi } from "../context/UiContext";
 import { useNavigate } from "react-router-dom";
@@ -171,6 +171,8 @@ export default function BookingWidget({
   const { user } = useAuth();
   const { notify, showConfirm } = useUi();
   const navigate = useNavigate();
+  // Idempotency-Key текущей попытки брони: тот же ключ для ретраев того же запроса
+  const reserveKeyRef = useRef(null);
 
   const clubId = club?.id ?? club?._id ?? club?.clubId;
 
@@ -219,6 +221,7 @@ export default function BookingWidget({
   const [seats, setSeats] = useState([]);
   const [loadingAvail, setLoadingAvail] = useState(false);
   const [availError, setAvailError] = useState(null);
+  const [availStale, setAvailStale] = useState(null); // { ageMs } — сервер отдал последний известный снимок
   const [selectedSeats, setSelectedSeats] = useState(initialSelectedSeatIds || []);
   useEffect(() => { setSelectedSeats(initialSelectedSeatIds || []); }, [initialSelectedSeatIds]);
 
@@ -306,6 +309,8 @@ export default function BookingWidget({
       try {
         const body = { clubId, start: startIsoUTC, end: endIsoUTC, durationMinutes: Math.round(durationHours * 60) };
         const res = await apiPost("/booking/availability", body);
+        const payload = res?.data ?? res;
+        setAvailStale(payload?.stale ? { ageMs: payload.ageMs } : null);
         const seatsArr = res?.data?.seats ?? res?.seats ?? res;
         const rawSeats = Array.isArray(seatsArr) ? seatsArr : seatsArr?.seats ?? [];
         const pkgVip = packageIsVip(selectedPackage);
@@ -371,7 +376,7 @@ export default function BookingWidget({
         durationMinutes: Math.round(durationHours * 60),
         totalPrice: computed || undefined
       };
-      const res = await apiPost("/booking/reserve", payload);
+      const res = await apiPost("/booking/reserve", payload, idempotencyKey(reserveKeyRef, payload));
       if (res?.data?.reservationId || res?.reservationId) {
         notify("success", "Бронирование успешно!");
         try {
@@ -528,6 +533,11 @@ export default function BookingWidget({
         </div>
 
         {availError && <div className="text-red-400 text-sm mb-2">{availError}</div>}
+        {availStale && (
+          <div className="text-yellow-400 text-sm mb-2">
+            Сервис временно недоступен: показана занятость на {Math.round((availStale.ageMs || 0) / 1000)} с назад, бронирование может не пройти
+          </div>
+        )}
 
         <div className="bg-gray-900 p-3 rounded">
           <div className="mb-3 h-40 bg-gradient-to-r from-purple-800 to-pink-800 rounded flex items-center justify-center text-white/60">
@@ -1,5 +1,5 @@
 // src/pages/account/MyAccount.jsx
-import React, { useEffect, useMemo, useRef, useState } from "react";
+import React, { useEffect, useMemo, useState } from "react";
 import Navbar from "../../components/Navbar";
 import MenuModal from "../../components/MenuModal";
 import { apiGet, apiPost } from "../../api/api.js";
@@ -41,10 +41,6 @@ export default function MyAccount() {
   // для debounce форматирования телефона
   const [typingTimeout, setTypingTimeout] = useState(null);
 
-  // кэши клубов и мест (как в History.jsx)
-  const clubsCache = useRef({});
-  const availabilityCache = useRef({});
-
   // загрузка профиля и активных броней
   useEffect(() => {
     let mounted = true;
@@ -66,77 +62,13 @@ export default function MyAccount() {
         }
 
         // история
-        const r = await apiGet("/booking/history");
+        const r = await apiGet("/booking/history/enriched");
         if (r.ok && mounted) {
           const all = r.data?.history ?? [];
           const now = new Date();
-          const activeNow = all.filter(
-            (x) => x.status === "ACTIVE" && new Date(x.end) > now
-          );
-
-          // подтянуть клубы
-          const uniqueClubIds = Array.from(
-            new Set(activeNow.map((x) => x.clubId).filter(Boolean))
-          );
-          await Promise.all(
-            uniqueClubIds.map(async (id) => {
-              if (clubsCache.current[id]) return;
-              try {
-                const c = await apiGet(`/clubs/${id}`);
-                if (c.ok && c.data) clubsCache.current[id] = c.data;
-              } catch {
-                /* ignore */
-              }
-            })
+          setActive(
+            all.filter((x) => x.status === "ACTIVE" && new Date(x.end) > now)
           );
-
-          // обогатить названиями клубов и мест
-          const enriched = await Promise.all(
-            activeNow.map(async (r) => {
-              const clubName =
-                r.clubName || clubsCache.current[r.clubId]?.name || r.clubId;
-
-              const key = `${r.clubId}::${r.start}::${r.end}`;
-              let seatLabels = [];
-
-              if (availabilityCache.current[key]) {
-                const rawSeats = availabilityCache.current[key];
-                const id2label = {};
-                rawSeats.forEach((s) => {
-                  if (s && s.id) id2label[s.id] = s.label ?? s.id;
-                });
-                seatLabels = (r.seatIds || []).map(
-                  (id) => id2label[id] ?? id
-                );
-              } else {
-                try {
-                  const avail = await apiPost("/booking/availability", {
-                    clubId: r.clubId,
-                    start: r.start,
-                    end: r.end,
-                  });
-                  const seatsArr = avail?.data?.seats ?? avail?.seats ?? avail;
-                  const rawSeats = Array.isArray(seatsArr)
-                    ? seatsArr
-                    : seatsArr?.seats ?? [];
-                  availabilityCache.current[key] = rawSeats;
-                  const id2label = {};
-                  rawSeats.forEach((s) => {
-                    if (s && s.id) id2label[s.id] = s.label ?? s.id;
-                  });
-                  seatLabels = (r.seatIds || []).map(
-                    (id) => id2label[id] ?? id
-                  );
-                } catch {
-                  seatLabels = r.seatIds || [];
-                }
-              }
-
-              return { ...r, clubName, seatLabels };
-            })
-          );
-
-          setActive(enriched);
         }
       } catch (err) {
         console.error(err);
@@ -416,12 +348,11 @@ export default function MyAccount() {
                   <div className="font-bold text-base md:text-lg mb-1">
                     {a.clubName ?? a.clubId}
                   </div>
-                  {a.clubId &&
-                    (clubsCache.current[a.clubId]?.address || a.address) && (
-                      <div className="text-sm text-gray-400 mb-2">
-                        {clubsCache.current[a.clubId]?.address ?? a.address}
-                      </div>
-                    )}
+                  {a.club?.address && (
+                    <div className="text-sm text-gray-400 mb-2">
+                      {a.club.address}
+                    </div>
+                  )}
 
                   <div className="text-sm text-gray-300 mb-1">
                     Пакет: {a.packageName ?? a.packageId ?? "—"}
@@ -1,5 +1,5 @@
 // src/pages/history/History.jsx
-import React, { useEffect, useState, useRef } from "react";
+import React, { useEffect, useState } from "react";
 import Navbar from "../../components/Navbar";
 import MenuModal from "../../components/MenuModal";
 import { apiGet, apiPost } from "../../api/api.js";
@@ -30,62 +30,18 @@ export default function History() {
   const navigate = useNavigate();
   const { showConfirm, notify } = useUi();
 
-  // caches to avoid duplicate requests
-  const clubsCache = useRef({});
-  const availabilityCache = useRef({});
-
   const loadHistory = async () => {
     setLoading(true);
     setError(null);
     try {
-      const res = await apiGet("/booking/history");
+      // клубы и подписи мест сервер склеивает сам — один запрос вместо запроса на клуб и на бронь
+      const res = await apiGet("/booking/history/enriched");
       if (!res.ok) {
         setError(res.data?.error ?? "Ошибка загрузки");
         setHistory([]);
         return;
       }
-      const raw = res.data?.history ?? [];
-
-      // collect unique clubIds
-      const uniqueClubIds = Array.from(new Set(raw.map(r => r.clubId).filter(Boolean)));
-
-      // fetch clubs (cache-aware)
-      await Promise.all(uniqueClubIds.map(async id => {
-        if (clubsCache.current[id]) return;
-        try {
-          const c = await apiGet(`/clubs/${id}`);
-          if (c.ok && c.data) clubsCache.current[id] = c.data;
-        } catch (e) { /* ignore */ }
-      }));
-
-      // enrich each reservation with clubName and seatLabels
-      const enriched = await Promise.all(raw.map(async r => {
-        const clubName = r.clubName || (clubsCache.current[r.clubId]?.name) || r.clubId;
-        // availability cache key: clubId + start + end
-        const key = `${r.clubId}::${r.start}::${r.end}`;
-        let seatLabels = [];
-        if (availabilityCache.current[key]) {
-          const rawSeats = availabilityCache.current[key];
-          const id2label = {};
-          rawSeats.forEach(s => { if (s && s.id) id2label[s.id] = s.label ?? s.id; });
-          seatLabels = (r.seatIds || []).map(id => id2label[id] ?? id);
-        } else {
-          try {
-            const avail = await apiPost("/booking/availability", { clubId: r.clubId, start: r.start, end: r.end });
-            const seatsArr = avail?.data?.seats ?? avail?.seats ?? avail;
-            const rawSeats = Array.isArray(seatsArr) ? seatsArr : seatsArr?.seats ?? [];
-            availabilityCache.current[key] = rawSeats;
-            const id2label = {};
-            rawSeats.forEach(s => { if (s && s.id) id2label[s.id] = s.label ?? s.id; });
-            seatLabels = (r.seatIds || []).map(id => id2label[id] ?? id);
-          } catch (e) {
-            seatLabels = r.seatIds || [];
-          }
-        }
-        return { ...r, clubName, seatLabels };
-      }));
-
-      setHistory(enriched);
+      setHistory(res.data?.history ?? []);
     } catch (err) {
       console.error(err);
       setError(err.message || "Ошибка");
@@ -170,8 +126,8 @@ export default function History() {
               <div key={r.id} className="bg-[#1E1E1E] p-3 sm:p-4 rounded-lg border border-gray-800 flex flex-col md:flex-row gap-4">
                 <div className="flex-1">
                   <div className="font-extrabold text-base sm:text-lg tracking-wide mb-1 break-words">{r.clubName ?? r.clubId}</div>
-                  {r.clubId && (clubsCache.current[r.clubId]?.address || r.address) && (
-                    <div className="text-sm text-gray-400 mb-2">{clubsCache.current[r.clubId]?.address ?? r.address}</div>
+                  {r.club?.address && (
+                    <div className="text-sm text-gray-400 mb-2">{r.club.address}</div>
                   )}
                   <div className="text-sm text-gray-300 mb-1">Пакет: {r.packageName ?? r.packageId ?? "—"}</div>
                   <div className="text-sm text-gray-300">Время: {formatDateRangeShort(r.start, r.end)}</div>
@@ -185,6 +141,12 @@ export default function History() {
                       <span className="font-semibold text-white">{r.status}</span>
                     </div>
 
+                    {r.refundStatus && (
+                      <div className="whitespace-nowrap text-yellow-400">
+                        {r.refundStatus === "REFUNDED" ? "Оплата возвращена" : "Оплата возвращается"}
+                      </div>
+                    )}
+
                     <div className="whitespace-nowrap">
                       Стоимость:{" "}
                       <span className="font-semibold text-white">
@@ -1,7 +1,7 @@
 // src/pages/payment/Payment.jsx
-import React, { useEffect, useState } from "react";
+import React, { useEffect, useRef, useState } from "react";
 import { useLocation, useNavigate } from "react-router-dom";
-import { apiPost } from "../../api/api";
+import { apiPost, idempotencyKey } from "../../api/api";
 import { useUi } from "../../context/UiContext";
 import Navbar from "../../components/Navbar";
 import MenuModal from "../../components/MenuModal";
@@ -13,6 +13,9 @@ export default function Payment() {
   const [menuOpen, setMenuOpen] = useState(false);
   const [processing, setProcessing] = useState(false);
   const [paymentMethod, setPaymentMethod] = useState("card"); // card or kaspi
+  // повторное нажатие «Оплатить» после сетевой ошибки не должно плодить брони и Stripe-сессии
+  const reserveKeyRef = useRef(null);
+  const paymentKeyRef = useRef(null);
 
   const {
     reservationId,
@@ -53,7 +56,7 @@ export default function Payment() {
       
       console.log("Reserve payload:", reservePayload);
       
-      const reserveRes = await apiPost("/booking/reserve", reservePayload);
+      const reserveRes = await apiPost("/booking/reserve", reservePayload, idempotencyKey(reserveKeyRef, reservePayload));
       console.log("Reserve response:", reserveRes);
       
       if (!reserveRes.ok || !reserveRes.data?.reservationId) {
@@ -74,7 +77,7 @@ export default function Payment() {
       
       console.log("Payment payload:", paymentPayload);
       
-      const paymentRes = await apiPost("/payment/create-intent", paymentPayload);
+      const paymentRes = await apiPost("/payment/create-intent", paymentPayload, idempotencyKey(paymentKeyRef, paymentPayload));
       console.log("Payment response:", paymentRes);
 
       if (paymentRes.ok && paymentRes.data?.checkoutUrl) {
@@ -0,0 +1,68 @@
+#!/usr/bin/env bash
+# Время до первого ответа /booking/availability: от запуска JVM до первого HTTP 200.
+# Нужна запущенная MongoDB (spring.data.mongodb.uri как для обычного запуска).
+#
+#   scripts/startup-benchmark.sh plain  [runs]   # обычный fat jar:           ./mvnw package
+#   scripts/startup-benchmark.sh fast   [runs]   # AOT + AppCDS:              ./mvnw -Pfast-startup package
+#
+# CLUB_ID — клуб для запроса (по умолчанию несуществующий: пустой зал, но запрос всё равно идёт в Mongo),
+# PORT — порт приложения (8080), JAVA_OPTS — дополнительные флаги JVM.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+MODE="${1:-plain}"
+RUNS="${2:-5}"
+PORT="${PORT:-8080}"
+CLUB_ID="${CLUB_ID:-startup-benchmark}"
+JAR_NAME="smartclub-0.0.1-SNAPSHOT.jar"
+TIMEOUT_S=120
+
+case "$MODE" in
+  plain)
+    CMD=(java ${JAVA_OPTS:-} -jar "target/$JAR_NAME")
+    ;;
+  fast)
+    CMD=(java ${JAVA_OPTS:-} -XX:SharedArchiveFile=target/fast-startup/smartclub.jsa -Dspring.aot.enabled=true
+         -jar "target/fast-startup/$JAR_NAME")
+    ;;
+  *)
+    echo "usage: $0 plain|fast [runs]" >&2
+    exit 2
+    ;;
+esac
+
+now_ms() { date +%s%3N; }
+
+BODY=$(printf '{"clubId":"%s","start":"2030-01-01T10:00:00Z","end":"2030-01-01T12:00:00Z"}' "$CLUB_ID")
+results=()
+
+for i in $(seq 1 "$RUNS"); do
+  start=$(now_ms)
+  "${CMD[@]}" --server.port="$PORT" > "target/startup-benchmark-$MODE-$i.log" 2>&1 &
+  pid=$!
+
+  elapsed=""
+  while [ $(( $(now_ms) - start )) -lt $(( TIMEOUT_S * 1000 )) ]; do
+    code=$(curl -s -o /dev/null -w '%{http_code}' -X POST -H 'Content-Type: application/json' \
+      --data "$BODY" "http://localhost:$PORT/booking/availability" || true)
+    if [ "$code" = "200" ]; then
+      elapsed=$(( $(now_ms) - start ))
+      break
+    fi
+    sleep 0.05
+  done
+
+  kill "$pid" 2>/dev/null || true
+  wait "$pid" 2>/dev/null || true
+
+  if [ -z "$elapsed" ]; then
+    echo "run $i: no 200 within ${TIMEOUT_S}s, see target/startup-benchmark-$MODE-$i.log" >&2
+    exit 1
+  fi
+  echo "run $i: ${elapsed} ms"
+  results+=("$elapsed")
+done
+
+sorted=($(printf '%s\n' "${results[@]}" | sort -n))
+echo "$MODE: min ${sorted[0]} ms, median ${sorted[$(( RUNS / 2 ))]} ms, max ${sorted[$(( RUNS - 1 ))]} ms (time to first availability response)"
@@ -0,0 +1,22 @@
+package com.miras.smartclub.changefeed;
+
+import com.miras.smartclub.model.ChangeEvent;
+
+import java.util.function.Consumer;
+
+/**
+ * Лента изменений броней, клубов, мест и листа ожидания. Все записи публикуют сюда; кеши подписываются и инвалидируют себя.
+ * Подписчик получает и свои события, и события других узлов — различить можно по {@link #isLocal(ChangeEvent)}.
+ */
+public interface ChangeFeed {
+
+    void publish(ChangeEvent event);
+
+    void subscribe(Consumer<ChangeEvent> listener);
+
+    String nodeId();
+
+    default boolean isLocal(ChangeEvent event) {
+        return nodeId().equals(event.getNodeId());
+    }
+}
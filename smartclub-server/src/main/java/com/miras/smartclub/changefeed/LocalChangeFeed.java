@@ -0,0 +1,46 @@
+package com.miras.smartclub.changefeed;
+
+import com.miras.smartclub.model.ChangeEvent;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Лента в пределах одного процесса (один узел, dev). Доставка синхронная, в потоке записи.
+ */
+public class LocalChangeFeed implements ChangeFeed {
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong seq = new AtomicLong();
+    private final List<Consumer<ChangeEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(ChangeEvent event) {
+        event.setSeq(seq.incrementAndGet());
+        event.setNodeId(nodeId);
+        dispatch(listeners, event);
+    }
+
+    @Override
+    public void subscribe(Consumer<ChangeEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    static void dispatch(List<Consumer<ChangeEvent>> listeners, ChangeEvent event) {
+        for (Consumer<ChangeEvent> l : listeners) {
+            try {
+                l.accept(event);
+            } catch (RuntimeException e) {
+                System.err.println("[FEED] listener failed on " + event.getEntity() + " " + event.getEntityId() + ": " + e.getMessage());
+            }
+        }
+    }
+}
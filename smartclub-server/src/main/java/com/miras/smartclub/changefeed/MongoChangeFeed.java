@@ -0,0 +1,88 @@
+package com.miras.smartclub.changefeed;
+
+import com.miras.smartclub.model.ChangeEvent;
+import com.miras.smartclub.repository.ChangeEventRepository;
+import com.miras.smartclub.repository.SequenceRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Лента для нескольких узлов: событие получает номер из sequences и пишется в change_events,
+ * остальные узлы читают хвост по номеру. Свои события доставляются локально сразу, чужие — с задержкой
+ * не больше интервала опроса (плюс {@link #GAP_WAIT_MS}, если номер выдан, а запись ещё не видна).
+ * Номер и вставка идут в {@code executor}, вне потока записи: publish зовут под локом клуба, и два round trip
+ * в Mongo держали бы его. Локальные подписчики получают событие сразу, до записи в change_events.
+ */
+public class MongoChangeFeed implements ChangeFeed {
+
+    private static final String SEQUENCE = "change_events";
+    // номер выдан раньше, чем документ вставлен: ждём дырку не дольше этого, потом пропускаем
+    private static final long GAP_WAIT_MS = 2000;
+
+    private final ChangeEventRepository changeEventRepository;
+    private final SequenceRepository sequenceRepository;
+    private final ExecutorService executor;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Consumer<ChangeEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile long lastSeq = -1;
+    private long gapSince = 0;
+
+    public MongoChangeFeed(ChangeEventRepository changeEventRepository, SequenceRepository sequenceRepository,
+                           ExecutorService executor) {
+        this.changeEventRepository = changeEventRepository;
+        this.sequenceRepository = sequenceRepository;
+        this.executor = executor;
+    }
+
+    @Override
+    public void publish(ChangeEvent event) {
+        event.setNodeId(nodeId);
+        LocalChangeFeed.dispatch(listeners, event);
+        executor.execute(() -> {
+            try {
+                event.setSeq(sequenceRepository.next(SEQUENCE));
+                changeEventRepository.insert(event);
+            } catch (RuntimeException e) {
+                // остальные узлы увидят изменение только по TTL своих кешей; запись клиента не валим
+                System.err.println("[FEED] failed to publish " + event.getEntity() + " " + event.getEntityId() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public void subscribe(Consumer<ChangeEvent> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Scheduled(fixedDelayString = "${smartclub.change-feed.poll-ms:500}")
+    public synchronized void poll() {
+        if (lastSeq < 0) {
+            // стартуем с текущего хвоста: история нам не нужна, кеши и так грузятся с нуля
+            lastSeq = changeEventRepository.findTopByOrderBySeqDesc().map(ChangeEvent::getSeq).orElse(0L);
+            return;
+        }
+
+        List<ChangeEvent> batch = changeEventRepository.findTop500BySeqGreaterThanOrderBySeqAsc(lastSeq);
+        for (ChangeEvent e : batch) {
+            if (e.getSeq() != lastSeq + 1) {
+                long now = System.currentTimeMillis();
+                if (gapSince == 0) gapSince = now;
+                if (now - gapSince < GAP_WAIT_MS) return;
+            }
+            gapSince = 0;
+            lastSeq = e.getSeq();
+            if (!isLocal(e)) LocalChangeFeed.dispatch(listeners, e);
+        }
+    }
+}
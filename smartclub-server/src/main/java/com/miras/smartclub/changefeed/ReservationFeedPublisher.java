@@ -0,0 +1,25 @@
+package com.miras.smartclub.changefeed;
+
+import com.miras.smartclub.event.ReservationChangedEvent;
+import com.miras.smartclub.model.ChangeEvent;
+import com.miras.smartclub.model.Reservation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Переносит записи броней (ReservationChangedEvent) в ленту изменений.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReservationFeedPublisher {
+
+    private final ChangeFeed changeFeed;
+
+    @EventListener
+    public void onReservationChanged(ReservationChangedEvent event) {
+        Reservation r = event.getReservation();
+        String action = event.isCreated() ? "CREATED" : String.valueOf(r.getStatus());
+        changeFeed.publish(new ChangeEvent(ChangeEvent.Entity.RESERVATION, r.getId(), r.getClubId(), action));
+    }
+}
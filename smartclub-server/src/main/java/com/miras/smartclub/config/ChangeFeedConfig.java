@@ -0,0 +1,35 @@
+package com.miras.smartclub.config;
+
+import com.miras.smartclub.changefeed.ChangeFeed;
+import com.miras.smartclub.changefeed.LocalChangeFeed;
+import com.miras.smartclub.changefeed.MongoChangeFeed;
+import com.miras.smartclub.repository.ChangeEventRepository;
+import com.miras.smartclub.repository.SequenceRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * smartclub.change-feed.mode=local (по умолчанию, один узел) | mongo (несколько узлов за балансировщиком).
+ */
+@Configuration
+@EnableScheduling
+public class ChangeFeedConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "smartclub.change-feed.mode", havingValue = "mongo")
+    public ChangeFeed mongoChangeFeed(ChangeEventRepository changeEventRepository, SequenceRepository sequenceRepository,
+                                      @Qualifier("queryExecutor") ExecutorService queryExecutor) {
+        return new MongoChangeFeed(changeEventRepository, sequenceRepository, queryExecutor);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "smartclub.change-feed.mode", havingValue = "local", matchIfMissing = true)
+    public ChangeFeed localChangeFeed() {
+        return new LocalChangeFeed();
+    }
+}
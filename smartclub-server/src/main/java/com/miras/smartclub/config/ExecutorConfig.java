@@ -0,0 +1,42 @@
+package com.miras.smartclub.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Пул для параллельных запросов к Mongo (fan-out по шардам клубов и т.п.). Ограничен, чтобы не съесть пул драйвера.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService queryExecutor() {
+        AtomicInteger n = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "query-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return Executors.newFixedThreadPool(8, factory);
+    }
+
+    /**
+     * Пул для возвратов оплаты: блокирующие HTTP-вызовы Stripe не должны занимать queryExecutor,
+     * который ждут потоки запросов (fan-out по клубам).
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService refundExecutor() {
+        AtomicInteger n = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "refund-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return Executors.newFixedThreadPool(2, factory);
+    }
+}
@@ -0,0 +1,64 @@
+package com.miras.smartclub.config;
+
+import com.miras.smartclub.model.ChangeEvent;
+import com.miras.smartclub.model.Club;
+import com.miras.smartclub.model.IdempotencyRecord;
+import com.miras.smartclub.model.OccupancyRollup;
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.ReservationJournalEntry;
+import com.miras.smartclub.model.ReservationSnapshotChunk;
+import com.miras.smartclub.model.SeatBlock;
+import com.miras.smartclub.model.User;
+import com.miras.smartclub.model.WaitlistEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+
+/**
+ * Создаёт индексы, объявленные аннотациями (@Indexed и т.д.), не полагаясь на
+ * spring.data.mongodb.auto-index-creation — на уникальных индексах держатся инварианты.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class MongoIndexConfig {
+
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(
+            User.class,
+            Club.class,
+            OccupancyRollup.class,
+            ChangeEvent.class,
+            Reservation.class,
+            WaitlistEntry.class,
+            SeatBlock.class,
+            IdempotencyRecord.class,
+            ReservationJournalEntry.class,
+            ReservationSnapshotChunk.class
+    );
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mongoMappingContext;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mongoMappingContext);
+        for (Class<?> type : INDEXED_DOCUMENTS) {
+            IndexOperations indexOps = mongoTemplate.indexOps(type);
+            resolver.resolveIndexFor(type).forEach(index -> {
+                try {
+                    indexOps.ensureIndex(index);
+                } catch (RuntimeException e) {
+                    // например, в коллекции уже есть дубликаты — приложение должно подняться, но это надо видеть
+                    System.err.println("[MONGO] failed to ensure index on " + type.getSimpleName() + ": " + e.getMessage());
+                }
+            });
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package com.miras.smartclub.config;
 
+import com.miras.smartclub.ratelimit.RateLimitFilter;
+import com.miras.smartclub.ratelimit.RateLimitService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -16,7 +19,7 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, RateLimitService rateLimitService) throws Exception {
         // Не вызываем http.cors() — CORS конфиг берётся из CorsConfigurationSource (WebConfig)
         http
                 .csrf(csrf -> csrf.disable())    // отключаем CSRF для API
@@ -24,7 +27,9 @@ public class SecurityConfig {
                         .requestMatchers("/auth/**").permitAll()
                         .anyRequest().permitAll()
                 )
-                .headers(headers -> headers.frameOptions(frame -> frame.disable()));
+                .headers(headers -> headers.frameOptions(frame -> frame.disable()))
+                // допуск до Mongo/BCrypt: 429 раньше, чем запрос дойдёт до контроллера
+                .addFilterBefore(new RateLimitFilter(rateLimitService), UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
@@ -0,0 +1,120 @@
+package com.miras.smartclub.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miras.smartclub.enums.Role;
+import com.miras.smartclub.ratelimit.RateLimitService;
+import com.miras.smartclub.resilience.RepositoryCircuitBreaker;
+import com.miras.smartclub.service.ImportService;
+import com.miras.smartclub.service.ReservationJournal;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Служебные операции для администраторов.
+ */
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final ImportService importService;
+    private final RateLimitService rateLimitService;
+    private final RepositoryCircuitBreaker repositoryCircuitBreaker;
+    private final ReservationJournal reservationJournal;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Импорт клубов/прайса/мест: тело запроса — файл целиком (NDJSON или CSV), ?format=ndjson|csv.
+     * Ответ — NDJSON-поток: ошибки по строкам и прогресс по мере записи пачек, последней строкой — сводка.
+     */
+    @PostMapping("/import")
+    public void importData(@RequestParam(defaultValue = "ndjson") String format,
+                           HttpServletRequest request,
+                           HttpServletResponse response,
+                           HttpSession session) throws IOException {
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        if (session.getAttribute("userId") == null || session.getAttribute("role") != Role.ADMIN) {
+            response.setStatus(403);
+            response.setContentType("application/json");
+            response.getWriter().write(objectMapper.writeValueAsString(Map.of("error", "Forbidden")));
+            return;
+        }
+
+        ImportService.Format f;
+        try {
+            f = ImportService.Format.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            response.setStatus(400);
+            response.setContentType("application/json");
+            response.getWriter().write(objectMapper.writeValueAsString(Map.of("error", "format must be ndjson or csv")));
+            return;
+        }
+
+        response.setContentType("application/x-ndjson");
+        PrintWriter out = response.getWriter();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        importService.importStream(reader, f, line -> {
+            try {
+                out.println(objectMapper.writeValueAsString(line));
+                out.flush();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * Счётчики rate limiter'а по правилам: пропущено, отбито (429), сколько ключей сейчас отслеживается.
+     */
+    @GetMapping("/rate-limit/stats")
+    public ResponseEntity<?> rateLimitStats(HttpSession session) {
+        if (session.getAttribute("userId") == null || session.getAttribute("role") != Role.ADMIN) {
+            return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
+        }
+        return ResponseEntity.ok(Map.of("enabled", rateLimitService.isEnabled(), "rules", rateLimitService.stats()));
+    }
+
+    /**
+     * Состояние предохранителя Mongo: CLOSED / OPEN / HALF_OPEN, сбои подряд, момент размыкания.
+     */
+    @GetMapping("/mongo-breaker/stats")
+    public ResponseEntity<?> mongoBreakerStats(HttpSession session) {
+        if (session.getAttribute("userId") == null || session.getAttribute("role") != Role.ADMIN) {
+            return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
+        }
+        return ResponseEntity.ok(repositoryCircuitBreaker.stats());
+    }
+
+    /**
+     * Журнал броней: до какого события догнано представление, номер последнего снимка, время прогрева.
+     */
+    @GetMapping("/journal/stats")
+    public ResponseEntity<?> journalStats(HttpSession session) {
+        if (session.getAttribute("userId") == null || session.getAttribute("role") != Role.ADMIN) {
+            return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
+        }
+        return ResponseEntity.ok(reservationJournal.stats());
+    }
+
+    /**
+     * Переходы статуса одной брони по журналу (PENDING → ACTIVE → CANCELLED), в порядке записи.
+     */
+    @GetMapping("/reservations/{id}/events")
+    public ResponseEntity<?> reservationEvents(@PathVariable String id, HttpSession session) {
+        if (session.getAttribute("userId") == null || session.getAttribute("role") != Role.ADMIN) {
+            return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
+        }
+        return ResponseEntity.ok(Map.of("events", reservationJournal.events(id)));
+    }
+}
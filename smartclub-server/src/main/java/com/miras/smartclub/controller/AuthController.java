@@ -1,5 +1,6 @@
 package com.miras.smartclub.controller;
 
+import com.miras.smartclub.exception.ConflictException;
 import com.miras.smartclub.model.User;
 import com.miras.smartclub.model.dto.LoginRequest;
 import com.miras.smartclub.model.dto.RegisterRequest;
@@ -24,6 +25,8 @@ public class AuthController {
             User savedUser = userService.register(request);
             savedUser.setPassword(null);
             return ResponseEntity.status(201).body(savedUser);
+        } catch (ConflictException e) {
+            return ResponseEntity.status(409).body(java.util.Map.of("error", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
         }
@@ -81,6 +84,8 @@ public class AuthController {
             User updated = userService.updateProfile(userId, firstName, lastName, phone, password);
             updated.setPassword(null);
             return ResponseEntity.ok(updated);
+        } catch (ConflictException e) {
+            return ResponseEntity.status(409).body(java.util.Map.of("error", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
         }
@@ -1,9 +1,19 @@
 package com.miras.smartclub.controller;
 
+import com.miras.smartclub.exception.ConflictException;
+import com.miras.smartclub.exception.SeatsConflictException;
 import com.miras.smartclub.model.Club;
 import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.Seat;
+import com.miras.smartclub.service.AvailabilityCache;
+import com.miras.smartclub.service.ClubAvailabilityService;
 import com.miras.smartclub.service.ClubService;
+import com.miras.smartclub.service.HistoryService;
+import com.miras.smartclub.service.IdempotencyService;
+import com.miras.smartclub.service.RecurringBookingService;
 import com.miras.smartclub.service.ReservationService;
+import com.miras.smartclub.service.SlotSearchService;
+import com.miras.smartclub.util.TextUtils;
 import jakarta.servlet.http.HttpSession;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -24,6 +34,15 @@ public class BookingController {
 
     private final ReservationService reservationService;
     private final ClubService clubService;
+    private final SlotSearchService slotSearchService;
+    private final ClubAvailabilityService clubAvailabilityService;
+    private final RecurringBookingService recurringBookingService;
+    private final IdempotencyService idempotencyService;
+    private final AvailabilityCache availabilityCache;
+    private final HistoryService historyService;
+
+    private static final int MAX_HORIZON_HOURS = 14 * 24;
+    private static final int MAX_NEXT_AVAILABLE = 10;
 
     @Data
     public static class AvailabilityRequest {
@@ -44,6 +63,51 @@ public class BookingController {
         private Integer totalPrice;
     }
 
+    @Data
+    public static class RecommendRequest {
+        private String clubId;
+        private Date start;
+        private Date end;
+        private Integer seatCount;
+        private Boolean vip;        // true — только VIP, false — только обычные, null — любые
+        private boolean reserve;    // сразу забронировать подобранный блок
+        private Integer durationMinutes;
+        private String packageId;
+        private Integer totalPrice;
+    }
+
+    @Data
+    public static class NextAvailableRequest {
+        private String clubId;
+        private Integer seatCount;
+        private Integer durationMinutes;
+        private Boolean vip;           // true — только VIP, false — только обычные, null — любые
+        private Date from;             // по умолчанию — сейчас
+        private Integer horizonHours;  // по умолчанию 24
+        private Integer limit;         // по умолчанию 3
+    }
+
+    @Data
+    public static class ClubsAvailabilityRequest {
+        private List<String> clubIds; // optional, по умолчанию все клубы
+        private Date start;
+        private Date end;
+    }
+
+    @Data
+    public static class RecurringReserveRequest {
+        private String clubId;
+        private List<String> seatIds;
+        private Date start;            // первое вхождение
+        private Date end;
+        private RecurringBookingService.Frequency frequency; // по умолчанию WEEKLY
+        private Integer interval;      // каждые N дней/недель, по умолчанию 1
+        private Integer occurrences;
+        private Integer durationMinutes;
+        private String packageId;
+        private Integer totalPrice;    // за одно вхождение
+    }
+
     @Data
     public static class CancelRequest {
         private String reservationId;
@@ -56,7 +120,7 @@ public class BookingController {
         }
 
         if (req.getSeatIds() == null || req.getSeatIds().isEmpty()) {
-            Map<String, Object> avail = reservationService.getAvailability(req.getClubId(), req.getStart(), req.getEnd());
+            Map<String, Object> avail = availabilityCache.getAvailability(req.getClubId(), req.getStart(), req.getEnd());
             return ResponseEntity.ok(avail);
         }
 
@@ -64,21 +128,37 @@ public class BookingController {
         return ResponseEntity.ok(Map.of("conflicts", conflicts));
     }
 
+    /**
+     * Свободные места (всего и VIP) по всем клубам или по списку clubIds на одно окно — одним запросом.
+     */
+    @PostMapping("/availability/clubs")
+    public ResponseEntity<?> availabilityForClubs(@RequestBody ClubsAvailabilityRequest req) {
+        if (req.getStart() == null || req.getEnd() == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "start and end required"));
+        }
+        List<Map<String, Object>> clubs = clubAvailabilityService.getAvailabilityForClubs(req.getClubIds(), req.getStart(), req.getEnd());
+        return ResponseEntity.ok(Map.of("start", req.getStart(), "end", req.getEnd(), "clubs", clubs));
+    }
+
+    /**
+     * С заголовком Idempotency-Key повторы того же запроса (ретраи мобильного клиента) получают исходный ответ,
+     * а не новую PENDING-бронь.
+     */
     @PostMapping("/reserve")
-    public ResponseEntity<?> reserve(@RequestBody ReserveRequest req, HttpSession session) {
+    public ResponseEntity<?> reserve(@RequestBody ReserveRequest req,
+                                     @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                     HttpSession session) {
         String userId = (String) session.getAttribute("userId");
         if (userId == null) return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
 
+        return idempotencyService.execute("reserve", userId, idempotencyKey, req, () -> doReserve(req, userId));
+    }
+
+    private ResponseEntity<?> doReserve(ReserveRequest req, String userId) {
         if (req.getClubId() == null || req.getSeatIds() == null || req.getSeatIds().isEmpty() || req.getStart() == null || req.getEnd() == null) {
             return ResponseEntity.badRequest().body(Map.of("error", "clubId, seatIds, start, end required"));
         }
 
-        // Check conflicts
-        List<Reservation> conflicts = reservationService.findConflicts(req.getClubId(), req.getSeatIds(), req.getStart(), req.getEnd());
-        if (!conflicts.isEmpty()) {
-            return ResponseEntity.status(409).body(Map.of("error", "Some seats already booked", "conflicts", conflicts));
-        }
-
         // Build reservation
         Reservation r = new Reservation();
         r.setClubId(req.getClubId());
@@ -100,7 +180,13 @@ public class BookingController {
         }
         r.setTotalPrice(computed);
 
-        Reservation saved = reservationService.createReservation(r);
+        // проверка конфликтов и вставка — атомарно под локом клуба
+        Reservation saved;
+        try {
+            saved = reservationService.reserve(r);
+        } catch (SeatsConflictException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage(), "conflicts", e.getConflicts()));
+        }
 
         Map<String, Object> resp = new HashMap<>();
         resp.put("message", "Reservation created");
@@ -114,12 +200,135 @@ public class BookingController {
         return ResponseEntity.ok(resp);
     }
 
+    /**
+     * Повторяющаяся бронь одних и тех же мест (например, каждый вторник): все вхождения проверяются
+     * одним запросом и вставляются одной пачкой. Свободные бронируются, по занятым возвращаются конфликты.
+     */
+    @PostMapping("/reserve/recurring")
+    public ResponseEntity<?> reserveRecurring(@RequestBody RecurringReserveRequest req, HttpSession session) {
+        String userId = (String) session.getAttribute("userId");
+        if (userId == null) return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+
+        if (req.getClubId() == null || req.getSeatIds() == null || req.getSeatIds().isEmpty()
+                || req.getStart() == null || req.getEnd() == null || !req.getEnd().after(req.getStart())
+                || req.getOccurrences() == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "clubId, seatIds, start < end and occurrences required"));
+        }
+
+        Reservation first = new Reservation();
+        first.setClubId(req.getClubId());
+        first.setSeatIds(req.getSeatIds());
+        first.setStart(req.getStart());
+        first.setEnd(req.getEnd());
+        first.setDurationMinutes(req.getDurationMinutes());
+        first.setPackageId(req.getPackageId());
+        first.setUserId(userId);
+        first.setStatus(Reservation.ReservationStatus.PENDING);
+        first.setTotalPrice(req.getTotalPrice() != null
+                ? req.getTotalPrice()
+                : computePriceForReservation(req.getClubId(), req.getPackageId(), req.getSeatIds().size()));
+
+        RecurringBookingService.Frequency frequency = req.getFrequency() == null
+                ? RecurringBookingService.Frequency.WEEKLY : req.getFrequency();
+        int interval = req.getInterval() == null ? 1 : req.getInterval();
+
+        List<Map<String, Object>> results;
+        try {
+            results = recurringBookingService.reserveRecurring(first, frequency, interval, req.getOccurrences());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        long booked = results.stream().filter(m -> Boolean.TRUE.equals(m.get("booked"))).count();
+        Map<String, Object> resp = new HashMap<>();
+        resp.put("seriesId", first.getSeriesId());
+        resp.put("booked", booked);
+        resp.put("conflicting", results.size() - booked);
+        resp.put("occurrences", results);
+        return ResponseEntity.ok(resp);
+    }
+
+    /**
+     * Подбор блока соседних свободных мест для группы; при reserve=true — сразу бронь на этот блок
+     * (одним запросом, без перебора мест и повторов на 409).
+     */
+    @PostMapping("/recommend")
+    public ResponseEntity<?> recommend(@RequestBody RecommendRequest req, HttpSession session) {
+        if (req.getClubId() == null || req.getStart() == null || req.getEnd() == null || req.getSeatCount() == null || req.getSeatCount() <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "clubId, start, end and positive seatCount required"));
+        }
+
+        if (!req.isReserve()) {
+            List<Seat> block = reservationService.recommendSeats(req.getClubId(), req.getStart(), req.getEnd(), req.getSeatCount(), req.getVip());
+            if (block.isEmpty()) {
+                return ResponseEntity.status(409).body(Map.of("error", "No block of " + req.getSeatCount() + " adjacent free seats"));
+            }
+            return ResponseEntity.ok(Map.of("seats", block, "seatIds", block.stream().map(Seat::getId).toList(), "reserved", false));
+        }
+
+        String userId = (String) session.getAttribute("userId");
+        if (userId == null) return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+
+        Reservation r = new Reservation();
+        r.setClubId(req.getClubId());
+        r.setStart(req.getStart());
+        r.setEnd(req.getEnd());
+        r.setDurationMinutes(req.getDurationMinutes());
+        r.setPackageId(req.getPackageId());
+        r.setUserId(userId);
+        r.setStatus(Reservation.ReservationStatus.PENDING);
+        Integer computed = req.getTotalPrice() != null
+                ? req.getTotalPrice()
+                : computePriceForReservation(req.getClubId(), req.getPackageId(), req.getSeatCount());
+        r.setTotalPrice(computed);
+
+        Reservation saved;
+        try {
+            saved = reservationService.reserveBestBlock(r, req.getSeatCount(), req.getVip());
+        } catch (ConflictException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        }
+
+        Map<String, Object> resp = new HashMap<>();
+        resp.put("message", "Reservation created");
+        resp.put("reserved", true);
+        resp.put("reservationId", saved.getId());
+        resp.put("reservation", saved);
+        resp.put("seatIds", saved.getSeatIds());
+        resp.put("computedPrice", computed);
+        return ResponseEntity.ok(resp);
+    }
+
+    /**
+     * Ближайшие окна, где свободно seatCount мест на durationMinutes, в пределах горизонта.
+     */
+    @PostMapping("/next-available")
+    public ResponseEntity<?> nextAvailable(@RequestBody NextAvailableRequest req) {
+        if (req.getClubId() == null || req.getSeatCount() == null || req.getSeatCount() <= 0
+                || req.getDurationMinutes() == null || req.getDurationMinutes() <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "clubId, positive seatCount and durationMinutes required"));
+        }
+        Date from = req.getFrom() != null ? req.getFrom() : new Date();
+        int horizonHours = req.getHorizonHours() == null ? 24 : Math.max(1, Math.min(req.getHorizonHours(), MAX_HORIZON_HOURS));
+        int limit = req.getLimit() == null ? 3 : Math.max(1, Math.min(req.getLimit(), MAX_NEXT_AVAILABLE));
+
+        List<Map<String, Object>> windows = slotSearchService.findNextAvailable(req.getClubId(), req.getSeatCount(),
+                req.getDurationMinutes(), req.getVip(), from, horizonHours * 60L, limit);
+        return ResponseEntity.ok(Map.of("windows", windows));
+    }
+
     @PostMapping("/cancel")
     public ResponseEntity<?> cancel(@RequestBody CancelRequest req, HttpSession session) {
         String userId = (String) session.getAttribute("userId");
         if (userId == null) return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
         if (req.getReservationId() == null) return ResponseEntity.badRequest().body(Map.of("error", "reservationId required"));
 
+        Optional<Reservation> cancelled = reservationService.cancelOwnReservation(req.getReservationId(), userId);
+        if (cancelled.isPresent()) {
+            return ResponseEntity.ok(Map.of("message", "Cancelled", "reservationId", req.getReservationId()));
+        }
+
+        // условный update не сработал — выясняем причину
         Optional<Reservation> maybe = reservationService.getById(req.getReservationId());
         if (maybe.isEmpty()) return ResponseEntity.status(404).body(Map.of("error", "Reservation not found"));
 
@@ -129,13 +338,7 @@ public class BookingController {
         if (found.getStatus() == Reservation.ReservationStatus.CANCELLED) {
             return ResponseEntity.badRequest().body(Map.of("error", "Already cancelled"));
         }
-
-        Optional<Reservation> cancelled = reservationService.cancelReservation(req.getReservationId(), userId);
-        if (cancelled.isPresent()) {
-            return ResponseEntity.ok(Map.of("message", "Cancelled", "reservationId", req.getReservationId()));
-        } else {
-            return ResponseEntity.status(500).body(Map.of("error", "Cancellation failed"));
-        }
+        return ResponseEntity.status(500).body(Map.of("error", "Cancellation failed"));
     }
 
     @GetMapping("/history")
@@ -146,6 +349,16 @@ public class BookingController {
         return ResponseEntity.ok(Map.of("history", history));
     }
 
+    /**
+     * История, уже склеенная с клубами (club, clubName) и подписями мест (seatLabels) — одним запросом с клиента.
+     */
+    @GetMapping("/history/enriched")
+    public ResponseEntity<?> enrichedHistory(HttpSession session) {
+        String userId = (String) session.getAttribute("userId");
+        if (userId == null) return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        return ResponseEntity.ok(Map.of("history", historyService.getEnrichedHistory(userId)));
+    }
+
     @PostMapping("/clear-past")
     public ResponseEntity<?> clearPast(HttpSession session) {
         String userId = (String) session.getAttribute("userId");
@@ -184,7 +397,7 @@ public class BookingController {
                 return null;
             }
 
-            String normPackage = normalizeKey(packageId);
+            String normPackage = TextUtils.normalizeKey(packageId);
 
             // Build candidate list: normalize price items with multiple text keys
             List<Club.PriceItem> items = club.getPrices();
@@ -195,7 +408,7 @@ public class BookingController {
                 List<String> keys = Arrays.asList(pi.getService(), pi.getCategory(), pi.getType(), pi.getResourceType());
                 for (String k : keys) {
                     if (k == null) continue;
-                    if (normalizeKey(k).equals(normPackage)) {
+                    if (TextUtils.normalizeKey(k).equals(normPackage)) {
                         Integer single = extractPriceNumber(pi);
                         if (single != null) {
                             System.out.println("[BOOKING] computePrice - exact match on key='" + k + "' price=" + single);
@@ -212,7 +425,7 @@ public class BookingController {
             for (Club.PriceItem pi : items) {
                 if (pi == null) continue;
                 String combined = (pi.getService() == null ? "" : pi.getService()) + " " + (pi.getCategory() == null ? "" : pi.getCategory()) + " " + (pi.getType() == null ? "" : pi.getType());
-                String normCombined = normalizeKey(combined);
+                String normCombined = TextUtils.normalizeKey(combined);
                 if (normCombined.contains(normPackage) || normPackage.contains(normCombined)) {
                     Integer single = extractPriceNumber(pi);
                     if (single != null) {
@@ -243,15 +456,6 @@ public class BookingController {
         }
     }
 
-    private String normalizeKey(String s) {
-        if (s == null) return "";
-        String t = s.trim().toLowerCase();
-        // remove punctuation characters that could break matching
-        t = t.replaceAll("[\\p{Punct}]+", " ");
-        t = t.replaceAll("\\s+", " ");
-        return t;
-    }
-
     private Integer extractPriceNumber(Club.PriceItem pi) {
         if (pi == null) return null;
         if (pi.getPriceNumber() != null) return pi.getPriceNumber();
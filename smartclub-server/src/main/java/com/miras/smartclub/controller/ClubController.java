@@ -1,18 +1,26 @@
 package com.miras.smartclub.controller;
 
+import com.miras.smartclub.index.ClubSearchIndex;
+import com.miras.smartclub.index.GeoGridIndex;
 import com.miras.smartclub.model.Club;
 import com.miras.smartclub.service.ClubService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/clubs")
 @RequiredArgsConstructor
 public class ClubController {
 
+    private static final double MAX_RADIUS_KM = 100;
+    private static final int MAX_LIMIT = 100;
+
     private final ClubService service;
 
     @GetMapping
@@ -20,6 +28,49 @@ public class ClubController {
         return ResponseEntity.ok(service.findAll());
     }
 
+    /**
+     * Клубы вокруг точки (для карты): ?lat=..&lng=..&radiusKm=5&limit=20, ближайшие первыми.
+     */
+    @GetMapping("/nearby")
+    public ResponseEntity<?> nearby(@RequestParam double lat,
+                                    @RequestParam double lng,
+                                    @RequestParam(defaultValue = "5") double radiusKm,
+                                    @RequestParam(defaultValue = "20") int limit) {
+        if (lat < -90 || lat > 90 || lng < -180 || lng > 180) {
+            return ResponseEntity.badRequest().body(Map.of("error", "lat/lng out of range"));
+        }
+        if (radiusKm <= 0 || limit <= 0) {
+            return ResponseEntity.badRequest().body(Map.of("error", "radiusKm and limit must be positive"));
+        }
+
+        List<GeoGridIndex.Hit> hits = service.findNearby(lat, lng, Math.min(radiusKm, MAX_RADIUS_KM), Math.min(limit, MAX_LIMIT));
+        List<Map<String, Object>> result = hits.stream().map(h -> {
+            Map<String, Object> m = new HashMap<>();
+            m.put("club", h.getClub());
+            m.put("distanceKm", Math.round(h.getDistanceKm() * 100) / 100.0);
+            return m;
+        }).collect(Collectors.toList());
+        return ResponseEntity.ok(Map.of("clubs", result));
+    }
+
+    /**
+     * Поиск клубов: ?q=..&limit=20. Отвечает из in-memory индекса, лучшие совпадения первыми.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam String q,
+                                    @RequestParam(defaultValue = "20") int limit) {
+        if (q.isBlank()) return ResponseEntity.badRequest().body(Map.of("error", "q required"));
+
+        List<ClubSearchIndex.Hit> hits = service.search(q, Math.max(1, Math.min(limit, MAX_LIMIT)));
+        List<Map<String, Object>> result = hits.stream().map(h -> {
+            Map<String, Object> m = new HashMap<>();
+            m.put("club", h.getClub());
+            m.put("score", Math.round(h.getScore() * 100) / 100.0);
+            return m;
+        }).collect(Collectors.toList());
+        return ResponseEntity.ok(Map.of("results", result));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> getOne(@PathVariable String id) {
         Club club = service.findById(id);
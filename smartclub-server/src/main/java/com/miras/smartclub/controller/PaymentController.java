@@ -1,15 +1,18 @@
 package com.miras.smartclub.controller;
 import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.service.IdempotencyService;
 import com.miras.smartclub.service.ReservationService;
 import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
 import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.checkout.SessionCreateParams;
 import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpSession;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -17,12 +20,15 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
+// Stripe SDK грузится при первом платеже, а не на старте узла (см. профиль fast-startup)
+@Lazy
 @RestController
 @RequestMapping("/payment")
 @RequiredArgsConstructor
 public class PaymentController {
 
     private final ReservationService reservationService;
+    private final IdempotencyService idempotencyService;
 
     @Value("${stripe.api.key:your_stripe_secret_key}")
     private String stripeApiKey;
@@ -39,9 +45,14 @@ public class PaymentController {
         private String currency;
     }
 
+    /**
+     * С заголовком Idempotency-Key повтор возвращает уже созданную Stripe-сессию; тот же ключ уходит и в Stripe,
+     * так что дубль не создастся, даже если наш ответ не успел сохраниться.
+     */
     @PostMapping("/create-intent")
     public ResponseEntity<?> createPaymentIntent(
             @RequestBody CreatePaymentIntentRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             HttpSession httpSession
     ) {
         String userId = (String) httpSession.getAttribute("userId");
@@ -49,6 +60,11 @@ public class PaymentController {
             return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
         }
 
+        return idempotencyService.execute("create-intent", userId, idempotencyKey, request,
+                () -> doCreatePaymentIntent(request, userId, idempotencyKey));
+    }
+
+    private ResponseEntity<?> doCreatePaymentIntent(CreatePaymentIntentRequest request, String userId, String idempotencyKey) {
         if (request.getReservationId() == null || request.getAmount() == null) {
             return ResponseEntity.badRequest().body(Map.of("error", "reservationId and amount required"));
         }
@@ -63,6 +79,10 @@ public class PaymentController {
         if (!userId.equals(res.getUserId())) {
             return ResponseEntity.status(403).body(Map.of("error", "Not your reservation"));
         }
+        // оплатить можно только бронь, которая ещё держит места: истёкшую по сроку оплаты снял sweep
+        if (res.getStatus() != Reservation.ReservationStatus.PENDING) {
+            return ResponseEntity.status(409).body(Map.of("error", "Reservation is " + res.getStatus() + ", payment not allowed"));
+        }
 
         try {
             // Create Stripe Checkout Session
@@ -93,7 +113,10 @@ public class PaymentController {
                 .putMetadata("userId", userId)
                 .build();
 
-            Session session = Session.create(params);
+            RequestOptions options = idempotencyKey == null
+                    ? RequestOptions.getDefault()
+                    : RequestOptions.builder().setIdempotencyKey("create-intent:" + userId + ":" + idempotencyKey).build();
+            Session session = Session.create(params, options);
 
             Map<String, Object> response = new HashMap<>();
             response.put("sessionId", session.getId());
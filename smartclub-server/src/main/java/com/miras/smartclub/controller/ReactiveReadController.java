@@ -0,0 +1,57 @@
+package com.miras.smartclub.controller;
+
+import com.miras.smartclub.model.Club;
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.service.ReactiveReadService;
+import jakarta.servlet.http.HttpSession;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Неблокирующие чтения рядом с обычными MVC-эндпоинтами: MVC отдаёт Mono/Flux асинхронно, поток сервлета
+ * освобождается сразу, а ответ пишется по мере прихода данных из реактивного драйвера.
+ * Списки отдаются как NDJSON — по строке на документ.
+ */
+@RestController
+@RequestMapping("/r")
+@RequiredArgsConstructor
+public class ReactiveReadController {
+
+    private static final int MAX_HISTORY = 200;
+
+    private final ReactiveReadService readService;
+
+    @GetMapping(value = "/clubs", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Club> clubs() {
+        return readService.clubs();
+    }
+
+    @GetMapping("/clubs/{id}")
+    public Mono<ResponseEntity<Club>> club(@PathVariable String id) {
+        return readService.club(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/booking/availability")
+    public Mono<ResponseEntity<?>> availability(@RequestBody BookingController.AvailabilityRequest req) {
+        if (req.getClubId() == null || req.getStart() == null || req.getEnd() == null) {
+            return Mono.just(ResponseEntity.badRequest().body(Map.of("error", "clubId, start and end required")));
+        }
+        return readService.availability(req.getClubId(), req.getStart(), req.getEnd())
+                .<ResponseEntity<?>>map(ResponseEntity::ok);
+    }
+
+    @GetMapping(value = "/booking/history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<Reservation>> history(@RequestParam(defaultValue = "50") int limit, HttpSession session) {
+        String userId = (String) session.getAttribute("userId");
+        if (userId == null) return ResponseEntity.status(401).build();
+        return ResponseEntity.ok(readService.history(userId, Math.max(1, Math.min(limit, MAX_HISTORY))));
+    }
+}
@@ -0,0 +1,99 @@
+package com.miras.smartclub.controller;
+
+import com.miras.smartclub.enums.Role;
+import com.miras.smartclub.model.OccupancyRollup;
+import com.miras.smartclub.service.ExportService;
+import com.miras.smartclub.service.RollupService;
+import jakarta.servlet.http.HttpSession;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Отчёты для операторов клубов: чтение и выгрузка — ADMIN и OPERATOR, пересборка rollup'ов — только ADMIN.
+ */
+@RestController
+@RequestMapping("/reports")
+@RequiredArgsConstructor
+public class ReportController {
+
+    private final RollupService rollupService;
+    private final ExportService exportService;
+
+    /**
+     * Загрузка и выручка клуба: ?clubId=..&from=..&to=..&granularity=HOUR|DAY (from/to — ISO date-time).
+     */
+    @GetMapping("/occupancy")
+    public ResponseEntity<?> occupancy(@RequestParam String clubId,
+                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                       @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                       @RequestParam(defaultValue = "DAY") OccupancyRollup.Granularity granularity,
+                                       HttpSession session) {
+        if (!isStaff(session)) return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
+        if (!to.after(from)) return ResponseEntity.badRequest().body(Map.of("error", "to must be after from"));
+
+        List<Map<String, Object>> buckets = rollupService.query(clubId, granularity, from, to);
+        return ResponseEntity.ok(Map.of("clubId", clubId, "granularity", granularity, "buckets", buckets));
+    }
+
+    /**
+     * Пересборка rollup'ов из истории броней (?clubId — только один клуб). Админская операция.
+     */
+    @PostMapping("/occupancy/rebuild")
+    public ResponseEntity<?> rebuild(@RequestParam(required = false) String clubId, HttpSession session) {
+        if (!isAdmin(session)) return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
+        try {
+            long processed = rollupService.rebuild(clubId);
+            return ResponseEntity.ok(Map.of("processed", processed));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Выгрузка броней для бухгалтерии: ?clubId (опционально)&from&to&format=csv|ndjson — брони с началом в [from, to).
+     * Ответ отдаётся потоком (chunked) прямо из курсора.
+     */
+    @GetMapping("/reservations/export")
+    public ResponseEntity<?> exportReservations(@RequestParam(required = false) String clubId,
+                                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                                @RequestParam(defaultValue = "csv") String format,
+                                                HttpSession session) {
+        if (!isStaff(session)) return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
+        if (!to.after(from)) return ResponseEntity.badRequest().body(Map.of("error", "to must be after from"));
+
+        ExportService.Format f;
+        try {
+            f = ExportService.Format.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "format must be csv or ndjson"));
+        }
+
+        boolean csv = f == ExportService.Format.CSV;
+        String filename = "reservations" + (clubId == null ? "" : "-" + clubId) + (csv ? ".csv" : ".ndjson");
+        StreamingResponseBody body = os -> exportService.writeReservations(clubId, from, to, f, os);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    private boolean isAdmin(HttpSession session) {
+        return session.getAttribute("userId") != null && session.getAttribute("role") == Role.ADMIN;
+    }
+
+    private boolean isStaff(HttpSession session) {
+        Object role = session.getAttribute("role");
+        return session.getAttribute("userId") != null && (role == Role.ADMIN || role == Role.OPERATOR);
+    }
+}
@@ -0,0 +1,82 @@
+package com.miras.smartclub.controller;
+
+import com.miras.smartclub.enums.Role;
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.SeatBlock;
+import com.miras.smartclub.service.SeatBlockService;
+import jakarta.servlet.http.HttpSession;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Блокировки мест (обслуживание, ремонт) вместо фиктивных броней. Только для ADMIN и OPERATOR.
+ */
+@RestController
+@RequestMapping("/operator/seat-blocks")
+@RequiredArgsConstructor
+public class SeatBlockController {
+
+    private final SeatBlockService seatBlockService;
+
+    @Data
+    public static class BlockRequest {
+        private String clubId;
+        private List<String> seatIds;
+        private Date start;
+        private Date end;
+        private String reason;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> create(@RequestBody BlockRequest req, HttpSession session) {
+        if (!isStaff(session)) return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
+
+        SeatBlock block = new SeatBlock();
+        block.setClubId(req.getClubId());
+        block.setSeatIds(req.getSeatIds());
+        block.setStart(req.getStart());
+        block.setEnd(req.getEnd());
+        block.setReason(req.getReason());
+        block.setCreatedBy((String) session.getAttribute("userId"));
+
+        List<Reservation> affected = new ArrayList<>();
+        try {
+            SeatBlock saved = seatBlockService.create(block, affected);
+            return ResponseEntity.ok(Map.of("block", saved, "affectedReservations", affected));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<?> list(@RequestParam String clubId,
+                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+                                  HttpSession session) {
+        if (!isStaff(session)) return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
+        if (!to.after(from)) return ResponseEntity.badRequest().body(Map.of("error", "to must be after from"));
+        return ResponseEntity.ok(Map.of("blocks", seatBlockService.list(clubId, from, to)));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> delete(@PathVariable String id, HttpSession session) {
+        if (!isStaff(session)) return ResponseEntity.status(403).body(Map.of("error", "Forbidden"));
+        if (seatBlockService.delete(id).isEmpty()) {
+            return ResponseEntity.status(404).body(Map.of("error", "Block not found"));
+        }
+        return ResponseEntity.ok(Map.of("message", "Unblocked", "blockId", id));
+    }
+
+    private boolean isStaff(HttpSession session) {
+        Object role = session.getAttribute("role");
+        return session.getAttribute("userId") != null && (role == Role.ADMIN || role == Role.OPERATOR);
+    }
+}
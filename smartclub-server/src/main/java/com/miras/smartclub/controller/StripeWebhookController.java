@@ -3,10 +3,13 @@ import com.miras.smartclub.service.ReservationService;
 import com.stripe.model.Event;
 import com.stripe.net.Webhook;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.web.bind.annotation.*;
 import lombok.RequiredArgsConstructor;
 import java.util.*;
 
+// Stripe SDK грузится при первом платеже, а не на старте узла (см. профиль fast-startup)
+@Lazy
 @RestController
 @RequestMapping("/api/webhook")
 @RequiredArgsConstructor
@@ -0,0 +1,83 @@
+package com.miras.smartclub.controller;
+
+import com.miras.smartclub.model.WaitlistEntry;
+import com.miras.smartclub.service.WaitlistService;
+import jakarta.servlet.http.HttpSession;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Лист ожидания: встать в очередь на окно, посмотреть свои записи (HELD — места придержаны, надо оплатить), выйти.
+ */
+@RestController
+@RequestMapping("/booking/waitlist")
+@RequiredArgsConstructor
+public class WaitlistController {
+
+    private final WaitlistService waitlistService;
+
+    @Data
+    public static class JoinRequest {
+        private String clubId;
+        private Date start;
+        private Date end;
+        private Integer seatCount;  // по умолчанию 1
+        private Boolean vip;        // true — только VIP, false — только обычные, null — любые
+        private String packageId;
+    }
+
+    @Data
+    public static class LeaveRequest {
+        private String entryId;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> join(@RequestBody JoinRequest req, HttpSession session) {
+        String userId = (String) session.getAttribute("userId");
+        if (userId == null) return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setClubId(req.getClubId());
+        entry.setUserId(userId);
+        entry.setStart(req.getStart());
+        entry.setEnd(req.getEnd());
+        entry.setSeatCount(req.getSeatCount() == null ? 1 : req.getSeatCount());
+        entry.setVip(req.getVip());
+        entry.setPackageId(req.getPackageId());
+
+        try {
+            WaitlistEntry saved = waitlistService.join(entry);
+            return ResponseEntity.ok(Map.of("message", "Added to waitlist", "entry", saved));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<?> mine(HttpSession session) {
+        String userId = (String) session.getAttribute("userId");
+        if (userId == null) return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        List<WaitlistEntry> entries = waitlistService.getUserEntries(userId);
+        return ResponseEntity.ok(Map.of("entries", entries));
+    }
+
+    @PostMapping("/cancel")
+    public ResponseEntity<?> leave(@RequestBody LeaveRequest req, HttpSession session) {
+        String userId = (String) session.getAttribute("userId");
+        if (userId == null) return ResponseEntity.status(401).body(Map.of("error", "Not authenticated"));
+        if (req.getEntryId() == null) return ResponseEntity.badRequest().body(Map.of("error", "entryId required"));
+
+        Optional<WaitlistEntry> left = waitlistService.leave(req.getEntryId(), userId);
+        if (left.isEmpty()) {
+            return ResponseEntity.status(404).body(Map.of("error", "Waitlist entry not found or already closed"));
+        }
+        return ResponseEntity.ok(Map.of("message", "Removed from waitlist", "entryId", req.getEntryId()));
+    }
+}
@@ -1,5 +1,6 @@
 package com.miras.smartclub.enums;
 
 public enum Role {
-    ADMIN, USER
+    // OPERATOR — персонал клуба: блокировки мест и отчёты, без импорта и прочих админских операций
+    ADMIN, OPERATOR, USER
 }
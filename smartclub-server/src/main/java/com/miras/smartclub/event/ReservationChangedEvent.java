@@ -0,0 +1,44 @@
+package com.miras.smartclub.event;
+
+import com.miras.smartclub.model.Reservation;
+
+/**
+ * Публикуется ReservationService после каждой записи брони (создание или смена статуса).
+ * {@code previousStatus} == null — бронь только что создана.
+ */
+public class ReservationChangedEvent {
+    private final Reservation reservation;
+    private final Reservation.ReservationStatus previousStatus;
+
+    public ReservationChangedEvent(Reservation reservation, Reservation.ReservationStatus previousStatus) {
+        this.reservation = reservation;
+        this.previousStatus = previousStatus;
+    }
+
+    public Reservation getReservation() { return reservation; }
+    public Reservation.ReservationStatus getPreviousStatus() { return previousStatus; }
+
+    public boolean isCreated() {
+        return previousStatus == null;
+    }
+
+    public boolean becameActive() {
+        return previousStatus != Reservation.ReservationStatus.ACTIVE
+                && reservation.getStatus() == Reservation.ReservationStatus.ACTIVE;
+    }
+
+    public boolean leftActive() {
+        return previousStatus == Reservation.ReservationStatus.ACTIVE
+                && reservation.getStatus() != Reservation.ReservationStatus.ACTIVE;
+    }
+
+    /**
+     * Места освободились: бронь вышла из ACTIVE или снята (истекла/отменена) PENDING-бронь со сроком holdUntil.
+     */
+    public boolean releasedSeats() {
+        if (leftActive()) return true;
+        return previousStatus == Reservation.ReservationStatus.PENDING
+                && reservation.getStatus() == Reservation.ReservationStatus.CANCELLED
+                && reservation.getHoldUntil() != null;
+    }
+}
@@ -0,0 +1,10 @@
+package com.miras.smartclub.exception;
+
+/**
+ * Бизнес-конфликт (дубликат телефона, занятые места и т.п.) — контроллеры отдают его как 409.
+ */
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,22 @@
+package com.miras.smartclub.exception;
+
+import com.miras.smartclub.model.Reservation;
+
+import java.util.List;
+
+/**
+ * Запрошенные места уже заняты в этом окне; {@link #getConflicts()} — пересекающиеся брони.
+ */
+public class SeatsConflictException extends ConflictException {
+
+    private final List<Reservation> conflicts;
+
+    public SeatsConflictException(String message, List<Reservation> conflicts) {
+        super(message);
+        this.conflicts = conflicts;
+    }
+
+    public List<Reservation> getConflicts() {
+        return conflicts;
+    }
+}
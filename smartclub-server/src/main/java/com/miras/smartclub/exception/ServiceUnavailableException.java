@@ -0,0 +1,14 @@
+package com.miras.smartclub.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Хранилище временно недоступно (цепь предохранителя разомкнута) — отдаётся как 503 без ожидания таймаута драйвера.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,151 @@
+package com.miras.smartclub.index;
+
+import com.miras.smartclub.model.Club;
+import com.miras.smartclub.util.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Инвертированный индекс по тексту клубов: токен → (clubId → вес поля).
+ * Токены лежат в отсортированной карте, поэтому префиксный поиск — это range scan.
+ * Запись (put/remove) сериализована, чтение идёт без блокировок.
+ */
+public final class ClubSearchIndex {
+
+    private static final float W_NAME = 5f;
+    private static final float W_SERVICE = 3f;
+    private static final float W_CATEGORY = 2f;
+    private static final float W_LOCATION = 2f;
+    private static final float W_ADDRESS = 2f;
+    // префиксное совпадение весит меньше точного
+    private static final float PREFIX_FACTOR = 0.6f;
+
+    private final ConcurrentSkipListMap<String, Map<String, Float>> postings = new ConcurrentSkipListMap<>();
+    private final Map<String, Map<String, Float>> docTokens = new ConcurrentHashMap<>();
+    private final Map<String, Club> docs = new ConcurrentHashMap<>();
+
+    public static class Hit {
+        private final Club club;
+        private final double score;
+
+        public Hit(Club club, double score) {
+            this.club = club;
+            this.score = score;
+        }
+
+        public Club getClub() { return club; }
+        public double getScore() { return score; }
+    }
+
+    public synchronized void rebuild(Collection<Club> clubs) {
+        postings.clear();
+        docTokens.clear();
+        docs.clear();
+        for (Club c : clubs) put(c);
+    }
+
+    /**
+     * Добавить или переиндексировать один клуб (старые токены клуба снимаются).
+     */
+    public synchronized void put(Club club) {
+        if (club == null || club.getId() == null) return;
+        remove(club.getId());
+
+        Map<String, Float> tokens = new HashMap<>();
+        addField(tokens, club.getName(), W_NAME);
+        addField(tokens, club.getLocation(), W_LOCATION);
+        addField(tokens, club.getAddress(), W_ADDRESS);
+        if (club.getPrices() != null) {
+            for (Club.PriceItem pi : club.getPrices()) {
+                if (pi == null) continue;
+                addField(tokens, pi.getService(), W_SERVICE);
+                addField(tokens, pi.getCategory(), W_CATEGORY);
+            }
+        }
+
+        for (Map.Entry<String, Float> e : tokens.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new ConcurrentHashMap<>()).put(club.getId(), e.getValue());
+        }
+        docTokens.put(club.getId(), tokens);
+        docs.put(club.getId(), club);
+    }
+
+    public synchronized void remove(String clubId) {
+        Map<String, Float> old = docTokens.remove(clubId);
+        docs.remove(clubId);
+        if (old == null) return;
+        for (String token : old.keySet()) {
+            Map<String, Float> list = postings.get(token);
+            if (list == null) continue;
+            list.remove(clubId);
+            if (list.isEmpty()) postings.remove(token);
+        }
+    }
+
+    public int size() {
+        return docs.size();
+    }
+
+    public Club get(String clubId) {
+        return docs.get(clubId);
+    }
+
+    public Collection<Club> clubs() {
+        return Collections.unmodifiableCollection(docs.values());
+    }
+
+    /**
+     * Каждый токен запроса должен совпасть с каким-то токеном клуба точно или как префикс (AND);
+     * score — сумма весов лучших совпадений, сортировка по score, затем по имени.
+     */
+    public List<Hit> search(String query, int limit) {
+        List<String> terms = TextUtils.tokenize(query);
+        if (terms.isEmpty() || limit <= 0) return Collections.emptyList();
+
+        Map<String, Double> scores = null;
+        for (String term : terms) {
+            Map<String, Double> termScores = new HashMap<>();
+            for (Map.Entry<String, Map<String, Float>> e : postings.subMap(term, true, term + Character.MAX_VALUE, true).entrySet()) {
+                float factor = e.getKey().equals(term) ? 1f : PREFIX_FACTOR * term.length() / e.getKey().length();
+                for (Map.Entry<String, Float> p : e.getValue().entrySet()) {
+                    termScores.merge(p.getKey(), (double) (p.getValue() * factor), Math::max);
+                }
+            }
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<String, Double> next = new HashMap<>();
+                for (Map.Entry<String, Double> s : scores.entrySet()) {
+                    Double add = termScores.get(s.getKey());
+                    if (add != null) next.put(s.getKey(), s.getValue() + add);
+                }
+                scores = next;
+            }
+            if (scores.isEmpty()) return Collections.emptyList();
+        }
+
+        List<Hit> hits = new ArrayList<>(scores.size());
+        for (Map.Entry<String, Double> s : scores.entrySet()) {
+            Club c = docs.get(s.getKey());
+            if (c != null) hits.add(new Hit(c, s.getValue()));
+        }
+        hits.sort(Comparator.comparingDouble(Hit::getScore).reversed()
+                .thenComparing(h -> h.getClub().getName() == null ? "" : h.getClub().getName()));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    private static void addField(Map<String, Float> tokens, String text, float weight) {
+        if (text == null || text.isBlank()) return;
+        for (String t : TextUtils.tokenize(text)) {
+            tokens.merge(t, weight, Math::max);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.miras.smartclub.index;
+
+import com.miras.smartclub.model.Club;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемая сетка lat/lng-ячеек для поиска ближайших клубов в памяти.
+ * Строится целиком при изменении каталога и подменяется атомарно (см. ClubService).
+ */
+public final class GeoGridIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = 111.32;
+
+    private final double cellDeg;
+    private final int lngCells;
+    private final Map<Long, List<Club>> cells;
+    private final List<Club> all;
+
+    private GeoGridIndex(double cellDeg, Map<Long, List<Club>> cells, List<Club> all) {
+        this.cellDeg = cellDeg;
+        this.lngCells = (int) Math.ceil(360.0 / cellDeg);
+        this.cells = cells;
+        this.all = all;
+    }
+
+    public static GeoGridIndex empty() {
+        return new GeoGridIndex(1.0, Collections.emptyMap(), Collections.emptyList());
+    }
+
+    public static GeoGridIndex build(Collection<Club> clubs, double cellDeg) {
+        GeoGridIndex shape = new GeoGridIndex(cellDeg, Collections.emptyMap(), Collections.emptyList());
+        Map<Long, List<Club>> cells = new HashMap<>();
+        List<Club> all = new ArrayList<>();
+        for (Club c : clubs) {
+            if (c == null || c.getLatitude() == null || c.getLongitude() == null) continue;
+            long key = shape.cellKey(shape.latCell(c.getLatitude()), shape.lngCell(c.getLongitude()));
+            cells.computeIfAbsent(key, k -> new ArrayList<>()).add(c);
+            all.add(c);
+        }
+        return new GeoGridIndex(cellDeg, cells, Collections.unmodifiableList(all));
+    }
+
+    public int size() {
+        return all.size();
+    }
+
+    public static class Hit {
+        private final Club club;
+        private final double distanceKm;
+
+        public Hit(Club club, double distanceKm) {
+            this.club = club;
+            this.distanceKm = distanceKm;
+        }
+
+        public Club getClub() { return club; }
+        public double getDistanceKm() { return distanceKm; }
+    }
+
+    /**
+     * Клубы в радиусе {@code radiusKm} от точки, по возрастанию расстояния, не больше {@code limit}.
+     */
+    public List<Hit> nearest(double lat, double lng, double radiusKm, int limit) {
+        if (all.isEmpty() || limit <= 0) return Collections.emptyList();
+
+        double dLat = radiusKm / KM_PER_DEGREE;
+        double cosLat = Math.cos(Math.toRadians(lat));
+        double dLng = cosLat < 1e-6 ? 180.0 : Math.min(180.0, radiusKm / (KM_PER_DEGREE * cosLat));
+
+        int latFrom = latCell(Math.max(-90.0, lat - dLat));
+        int latTo = latCell(Math.min(90.0, lat + dLat));
+        int lngFrom = (int) Math.floor((lng - dLng) / cellDeg);
+        int lngTo = (int) Math.floor((lng + dLng) / cellDeg);
+        long cellsToVisit = (long) (latTo - latFrom + 1) * Math.min(lngCells, lngTo - lngFrom + 1);
+
+        List<Hit> hits = new ArrayList<>();
+        if (cellsToVisit > all.size()) {
+            // радиус покрывает больше ячеек, чем есть клубов — проще пройти всех
+            for (Club c : all) collect(c, lat, lng, radiusKm, hits);
+        } else {
+            for (int la = latFrom; la <= latTo; la++) {
+                for (int lo = lngFrom; lo <= lngTo && lo - lngFrom < lngCells; lo++) {
+                    List<Club> bucket = cells.get(cellKey(la, Math.floorMod(lo, lngCells)));
+                    if (bucket == null) continue;
+                    for (Club c : bucket) collect(c, lat, lng, radiusKm, hits);
+                }
+            }
+        }
+
+        hits.sort(Comparator.comparingDouble(Hit::getDistanceKm));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    private static void collect(Club c, double lat, double lng, double radiusKm, List<Hit> out) {
+        double d = haversineKm(lat, lng, c.getLatitude(), c.getLongitude());
+        if (d <= radiusKm) out.add(new Hit(c, d));
+    }
+
+    public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    private int latCell(double lat) {
+        return (int) Math.floor((lat + 90.0) / cellDeg);
+    }
+
+    private int lngCell(double lng) {
+        return Math.floorMod((int) Math.floor(lng / cellDeg), lngCells);
+    }
+
+    private long cellKey(int latCell, int lngCell) {
+        return ((long) latCell << 32) | (lngCell & 0xffffffffL);
+    }
+}
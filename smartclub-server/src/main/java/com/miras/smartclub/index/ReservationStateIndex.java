@@ -0,0 +1,70 @@
+package com.miras.smartclub.index;
+
+import com.miras.smartclub.model.ReservationState;
+
+import java.util.*;
+
+/**
+ * In-memory представление броней, собранное из журнала: последнее известное состояние каждой брони по клубам.
+ * Событие применяется, только если его версия не старше уже учтённой, поэтому повтор и перестановка событий безопасны.
+ * Отменённые брони остаются до {@link #prune} — иначе опоздавшее событие создания воскресило бы их.
+ */
+public class ReservationStateIndex {
+
+    private final Map<String, ReservationState> byId = new HashMap<>();
+    private final Map<String, Map<String, ReservationState>> byClub = new HashMap<>();
+
+    /**
+     * true — состояние учтено (новое или новее имеющегося).
+     */
+    public synchronized boolean apply(ReservationState s) {
+        if (s == null || s.getReservationId() == null) return false;
+        ReservationState current = byId.get(s.getReservationId());
+        if (current != null && current.versionOrZero() > s.versionOrZero()) return false;
+        byId.put(s.getReservationId(), s);
+        byClub.computeIfAbsent(s.getClubId(), k -> new HashMap<>()).put(s.getReservationId(), s);
+        return true;
+    }
+
+    /**
+     * Брони клуба, держащие места в [start, end).
+     */
+    public synchronized List<ReservationState> occupying(String clubId, Date start, Date end) {
+        Map<String, ReservationState> club = byClub.get(clubId);
+        if (club == null) return Collections.emptyList();
+        List<ReservationState> result = new ArrayList<>();
+        for (ReservationState s : club.values()) {
+            if (s.isBlocking() && s.getStart().before(end) && s.getEnd().after(start)) result.add(s);
+        }
+        return result;
+    }
+
+    /**
+     * Убрать брони, закончившиеся раньше {@code cutoff}. Возвращает число убранных.
+     */
+    public synchronized int prune(Date cutoff) {
+        int removed = 0;
+        Iterator<ReservationState> it = byId.values().iterator();
+        while (it.hasNext()) {
+            ReservationState s = it.next();
+            if (s.getEnd() == null || s.getEnd().before(cutoff)) {
+                it.remove();
+                Map<String, ReservationState> club = byClub.get(s.getClubId());
+                if (club != null) {
+                    club.remove(s.getReservationId());
+                    if (club.isEmpty()) byClub.remove(s.getClubId());
+                }
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized List<ReservationState> snapshot() {
+        return new ArrayList<>(byId.values());
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+}
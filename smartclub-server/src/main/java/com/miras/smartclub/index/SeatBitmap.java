@@ -0,0 +1,82 @@
+package com.miras.smartclub.index;
+
+/**
+ * Битовый вектор мест клуба (бит i — место на позиции i по Seat.order).
+ * Поиск подряд идущих свободных мест идёт по 64-битным словам, а не по одному месту.
+ */
+public final class SeatBitmap {
+
+    private final long[] words;
+    private final int size;
+
+    public SeatBitmap(int size) {
+        this.size = size;
+        this.words = new long[(size + 63) >>> 6];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void set(int i) {
+        words[i >>> 6] |= 1L << i;
+    }
+
+    public void clear(int i) {
+        words[i >>> 6] &= ~(1L << i);
+    }
+
+    public boolean get(int i) {
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    public int cardinality() {
+        int n = 0;
+        for (long w : words) n += Long.bitCount(w);
+        return n;
+    }
+
+    public int nextSetBit(int from) {
+        if (from >= size) return -1;
+        int w = from >>> 6;
+        long word = words[w] & (-1L << from);
+        while (true) {
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == words.length) return -1;
+            word = words[w];
+        }
+    }
+
+    public int nextClearBit(int from) {
+        if (from >= size) return size;
+        int w = from >>> 6;
+        long word = ~words[w] & (-1L << from);
+        while (true) {
+            if (word != 0) return Math.min(size, (w << 6) + Long.numberOfTrailingZeros(word));
+            if (++w == words.length) return size;
+            word = ~words[w];
+        }
+    }
+
+    /**
+     * Начало блока из {@code count} подряд установленных битов по принципу best fit:
+     * самый короткий подходящий отрезок (меньше дробим зал), при равенстве — самый ранний. -1, если такого нет.
+     */
+    public int findBestRun(int count) {
+        if (count <= 0 || cardinality() < count) return -1;
+        int best = -1;
+        int bestLen = Integer.MAX_VALUE;
+        int i = nextSetBit(0);
+        while (i >= 0) {
+            int end = nextClearBit(i);
+            int len = end - i;
+            if (len >= count && len < bestLen) {
+                best = i;
+                bestLen = len;
+                if (len == count) break; // точнее не бывает
+            }
+            i = nextSetBit(end);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,58 @@
+package com.miras.smartclub.index;
+
+import com.miras.smartclub.model.WaitlistEntry;
+
+import java.util.*;
+
+/**
+ * Ожидающие записи одного клуба, упорядоченные по началу окна. Окно записи не длиннее {@code maxWindowMs},
+ * поэтому записи, пересекающиеся с [start, end), лежат в диапазоне ключей [start − maxWindowMs, end):
+ * поиск — O(log n + k), без обхода всего листа. Кандидаты возвращаются в порядке приоритета (кто раньше встал).
+ */
+public class WaitlistIndex {
+
+    private static final Comparator<WaitlistEntry> PRIORITY = Comparator
+            .comparing(WaitlistEntry::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(WaitlistEntry::getId);
+
+    private final long maxWindowMs;
+    private final TreeMap<Long, List<WaitlistEntry>> byStart = new TreeMap<>();
+    private final Map<String, WaitlistEntry> byId = new HashMap<>();
+
+    public WaitlistIndex(long maxWindowMs) {
+        this.maxWindowMs = maxWindowMs;
+    }
+
+    public synchronized void add(WaitlistEntry e) {
+        remove(e.getId());
+        byId.put(e.getId(), e);
+        byStart.computeIfAbsent(e.getStart().getTime(), k -> new ArrayList<>(1)).add(e);
+    }
+
+    public synchronized boolean remove(String entryId) {
+        WaitlistEntry e = byId.remove(entryId);
+        if (e == null) return false;
+        long key = e.getStart().getTime();
+        List<WaitlistEntry> bucket = byStart.get(key);
+        if (bucket != null) {
+            bucket.removeIf(x -> x.getId().equals(entryId));
+            if (bucket.isEmpty()) byStart.remove(key);
+        }
+        return true;
+    }
+
+    public synchronized List<WaitlistEntry> overlapping(Date start, Date end) {
+        List<WaitlistEntry> result = new ArrayList<>();
+        for (List<WaitlistEntry> bucket : byStart.subMap(start.getTime() - maxWindowMs, true, end.getTime(), false).values()) {
+            for (WaitlistEntry e : bucket) {
+                if (e.getEnd().after(start)) result.add(e);
+            }
+        }
+        result.sort(PRIORITY);
+        return result;
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+}
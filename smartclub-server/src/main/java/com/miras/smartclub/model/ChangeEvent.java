@@ -0,0 +1,51 @@
+package com.miras.smartclub.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Запись ленты изменений: «сущность X клуба Y изменилась». _id — монотонный номер из коллекции sequences.
+ * Старые записи удаляет TTL-индекс: лента нужна только для инвалидации кешей, не как история.
+ */
+@Document(collection = "change_events")
+public class ChangeEvent {
+
+    public enum Entity { RESERVATION, CLUB, SEAT, WAITLIST, SEAT_BLOCK }
+
+    @Id
+    private Long seq;
+    private Entity entity;
+    private String entityId;
+    private String clubId;
+    private String action;
+    private String nodeId;
+    @Indexed(expireAfterSeconds = 86400)
+    private Date at = new Date();
+
+    public ChangeEvent() {}
+
+    public ChangeEvent(Entity entity, String entityId, String clubId, String action) {
+        this.entity = entity;
+        this.entityId = entityId;
+        this.clubId = clubId;
+        this.action = action;
+    }
+
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
+    public Entity getEntity() { return entity; }
+    public void setEntity(Entity entity) { this.entity = entity; }
+    public String getEntityId() { return entityId; }
+    public void setEntityId(String entityId) { this.entityId = entityId; }
+    public String getClubId() { return clubId; }
+    public void setClubId(String clubId) { this.clubId = clubId; }
+    public String getAction() { return action; }
+    public void setAction(String action) { this.action = action; }
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+    public Date getAt() { return at; }
+    public void setAt(Date at) { this.at = at; }
+}
@@ -1,6 +1,10 @@
 package com.miras.smartclub.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.List;
@@ -15,6 +19,10 @@ public class Club {
     private String location;
     private Double latitude;
     private Double longitude;
+    // копия latitude/longitude в GeoJSON для 2dsphere-индекса; заполняется ClubService при сохранении
+    @JsonIgnore
+    @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
+    private GeoJsonPoint position;
     private String address;
     private String phone;
     private String email;
@@ -35,6 +43,8 @@ public class Club {
     public void setLatitude(Double latitude) { this.latitude = latitude; }
     public Double getLongitude() { return longitude; }
     public void setLongitude(Double longitude) { this.longitude = longitude; }
+    public GeoJsonPoint getPosition() { return position; }
+    public void setPosition(GeoJsonPoint position) { this.position = position; }
     public String getAddress() { return address; }
     public void setAddress(String address) { this.address = address; }
     public String getPhone() { return phone; }
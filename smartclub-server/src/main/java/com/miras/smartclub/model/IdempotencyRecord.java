@@ -0,0 +1,51 @@
+package com.miras.smartclub.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Сохранённый ответ на запрос с заголовком Idempotency-Key. _id — scope:userId:key.
+ * IN_PROGRESS — запрос ещё выполняется (возможно, на другом узле) до lockedUntil: узел, упавший посреди запроса,
+ * держит ключ только до конца аренды, потом повтор перехватывает захват. DONE — ответ сохранён и отдаётся повторам.
+ * Записи живут сутки (TTL-индекс по createdAt).
+ */
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    public enum State { IN_PROGRESS, DONE }
+
+    @Id
+    private String id;
+    private String requestHash;
+    private State state = State.IN_PROGRESS;
+    private int httpStatus;
+    private String body; // JSON ответа как есть
+    private Date lockedUntil;
+    @Indexed(expireAfterSeconds = 86400)
+    private Date createdAt = new Date();
+
+    public IdempotencyRecord() {}
+
+    public IdempotencyRecord(String id, String requestHash) {
+        this.id = id;
+        this.requestHash = requestHash;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getRequestHash() { return requestHash; }
+    public void setRequestHash(String requestHash) { this.requestHash = requestHash; }
+    public State getState() { return state; }
+    public void setState(State state) { this.state = state; }
+    public int getHttpStatus() { return httpStatus; }
+    public void setHttpStatus(int httpStatus) { this.httpStatus = httpStatus; }
+    public String getBody() { return body; }
+    public void setBody(String body) { this.body = body; }
+    public Date getLockedUntil() { return lockedUntil; }
+    public void setLockedUntil(Date lockedUntil) { this.lockedUntil = lockedUntil; }
+    public Date getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,76 @@
+package com.miras.smartclub.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Счётчики клуба за час или день: занятые место-минуты, выручка (totalPrice) и число броней.
+ * Считаются по ACTIVE броням; обновляются инкрементально через $inc (см. RollupService).
+ */
+@Document(collection = "occupancy_rollups")
+@CompoundIndex(name = "club_granularity_bucket", def = "{ 'clubId': 1, 'granularity': 1, 'bucketStart': 1 }")
+public class OccupancyRollup {
+
+    public enum Granularity { HOUR, DAY }
+
+    @Id
+    private String id; // clubId:GRANULARITY:bucket
+    private String clubId;
+    private Granularity granularity;
+    private Date bucketStart;
+    private long occupancyMinutes;
+    private long revenue;
+    private long reservations;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getClubId() { return clubId; }
+    public void setClubId(String clubId) { this.clubId = clubId; }
+    public Granularity getGranularity() { return granularity; }
+    public void setGranularity(Granularity granularity) { this.granularity = granularity; }
+    public Date getBucketStart() { return bucketStart; }
+    public void setBucketStart(Date bucketStart) { this.bucketStart = bucketStart; }
+    public long getOccupancyMinutes() { return occupancyMinutes; }
+    public void setOccupancyMinutes(long occupancyMinutes) { this.occupancyMinutes = occupancyMinutes; }
+    public long getRevenue() { return revenue; }
+    public void setRevenue(long revenue) { this.revenue = revenue; }
+    public long getReservations() { return reservations; }
+    public void setReservations(long reservations) { this.reservations = reservations; }
+
+    /**
+     * Приращение для одного бакета; накапливается в памяти и пишется пачкой.
+     */
+    public static class Delta {
+        private final String id;
+        private final String clubId;
+        private final Granularity granularity;
+        private final Date bucketStart;
+        private long occupancyMinutes;
+        private long revenue;
+        private long reservations;
+
+        public Delta(String id, String clubId, Granularity granularity, Date bucketStart) {
+            this.id = id;
+            this.clubId = clubId;
+            this.granularity = granularity;
+            this.bucketStart = bucketStart;
+        }
+
+        public void add(long minutes, long revenue, long reservations) {
+            this.occupancyMinutes += minutes;
+            this.revenue += revenue;
+            this.reservations += reservations;
+        }
+
+        public String getId() { return id; }
+        public String getClubId() { return clubId; }
+        public Granularity getGranularity() { return granularity; }
+        public Date getBucketStart() { return bucketStart; }
+        public long getOccupancyMinutes() { return occupancyMinutes; }
+        public long getRevenue() { return revenue; }
+        public long getReservations() { return reservations; }
+    }
+}
@@ -0,0 +1,46 @@
+package com.miras.smartclub.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Живой инкремент, отложенный на время пересборки rollup'ов клуба. _id — reservationId:sign:
+ * бронь входит в ACTIVE и выходит из него не больше одного раза, так что повторная запись того же события
+ * ничего не меняет. Бронь хранится целиком — по ней считаются бакеты при сверке.
+ * rebuildStartedAt — startedAt флага, при котором событие отложено: записи прерванной пересборки не сверяются.
+ */
+@Document(collection = "occupancy_rollup_pending")
+public class OccupancyRollupPending {
+
+    @Id
+    private String id;
+    @Indexed
+    private String clubId;
+    private int sign;
+    private Reservation reservation;
+    private Date rebuildStartedAt;
+
+    public OccupancyRollupPending() {}
+
+    public OccupancyRollupPending(Reservation reservation, int sign, Date rebuildStartedAt) {
+        this.id = reservation.getId() + ":" + sign;
+        this.clubId = reservation.getClubId();
+        this.sign = sign;
+        this.reservation = reservation;
+        this.rebuildStartedAt = rebuildStartedAt;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getClubId() { return clubId; }
+    public void setClubId(String clubId) { this.clubId = clubId; }
+    public int getSign() { return sign; }
+    public void setSign(int sign) { this.sign = sign; }
+    public Reservation getReservation() { return reservation; }
+    public void setReservation(Reservation reservation) { this.reservation = reservation; }
+    public Date getRebuildStartedAt() { return rebuildStartedAt; }
+    public void setRebuildStartedAt(Date rebuildStartedAt) { this.rebuildStartedAt = rebuildStartedAt; }
+}
@@ -0,0 +1,30 @@
+package com.miras.smartclub.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Флаг «rollup'ы клуба пересобираются». _id — clubId. Пока флаг стоит, живые инкременты любого узла
+ * не пишутся в occupancy_rollups, а откладываются в occupancy_rollup_pending (см. RollupService.rebuild).
+ */
+@Document(collection = "occupancy_rollup_rebuilds")
+public class OccupancyRollupRebuild {
+
+    @Id
+    private String id;
+    private Date startedAt;
+
+    public OccupancyRollupRebuild() {}
+
+    public OccupancyRollupRebuild(String clubId, Date startedAt) {
+        this.id = clubId;
+        this.startedAt = startedAt;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public Date getStartedAt() { return startedAt; }
+    public void setStartedAt(Date startedAt) { this.startedAt = startedAt; }
+}
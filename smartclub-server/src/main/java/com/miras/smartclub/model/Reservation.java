@@ -1,12 +1,20 @@
 package com.miras.smartclub.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.util.Date;
 import java.util.List;
 
 @Document(collection = "reservations")
+@CompoundIndex(name = "club_start", def = "{ 'clubId': 1, 'start': 1 }")
+// компактный overlap-индекс: только документы с компактными полями (см. CompactReservationSchema), не multikey
+@CompoundIndex(name = "club_overlap", def = "{ 'clubId': 1, 'em': 1, 'sm': 1, 'sb': 1 }",
+        partialFilter = "{ 'em': { '$exists': true } }")
 public class Reservation {
     @Id
     private String id;
@@ -25,8 +33,40 @@ public class Reservation {
 
     private String paymentIntentId; 
 
+    // срок оплаты или холд из листа ожидания: PENDING-бронь держит места до этого момента, потом снимается (см. WaitlistService)
+    @Indexed(sparse = true)
+    private Date holdUntil;
 
-    public enum ReservationStatus { PENDING, ACTIVE, CANCELLED }
+    // оплата пришла, а бронь не активирована (места заняты или бронь уже отменена): платёж возвращается (см. PaymentRefundService)
+    @Indexed(sparse = true)
+    private RefundStatus refundStatus;
+    private String refundId;
+
+    // общий id для броней, созданных одной серией (повторяющееся бронирование)
+    private String seriesId;
+
+    // увеличивается каждой атомарной записью (см. ReservationRepositoryCustom) — для оптимистичных обновлений
+    private Long version;
+
+    // компактная форма окна и мест для overlap-запросов: минуты эпохи (start вниз, end вверх),
+    // битовая маска мест по Seat.order и отпечаток раскладки мест, по которой она посчитана
+    @JsonIgnore
+    @Field("sm")
+    private Integer startMinute;
+    @JsonIgnore
+    @Field("em")
+    private Integer endMinute;
+    @JsonIgnore
+    @Field("sb")
+    private byte[] seatMask;
+    @JsonIgnore
+    @Field("sv")
+    private Integer seatLayout;
+
+    // BLOCKED в коллекции не хранится: так overlap-запросы помечают операторские блокировки мест (SeatBlock)
+    public enum ReservationStatus { PENDING, ACTIVE, CANCELLED, BLOCKED }
+
+    public enum RefundStatus { REQUIRED, REFUNDED }
 
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -56,4 +96,22 @@ public class Reservation {
     public void setCancelledBy(String cancelledBy) { this.cancelledBy = cancelledBy; }
     public String getPaymentIntentId() { return paymentIntentId; }
     public void setPaymentIntentId(String paymentIntentId) { this.paymentIntentId = paymentIntentId; }
+    public Date getHoldUntil() { return holdUntil; }
+    public void setHoldUntil(Date holdUntil) { this.holdUntil = holdUntil; }
+    public RefundStatus getRefundStatus() { return refundStatus; }
+    public void setRefundStatus(RefundStatus refundStatus) { this.refundStatus = refundStatus; }
+    public String getRefundId() { return refundId; }
+    public void setRefundId(String refundId) { this.refundId = refundId; }
+    public String getSeriesId() { return seriesId; }
+    public void setSeriesId(String seriesId) { this.seriesId = seriesId; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+    public Integer getStartMinute() { return startMinute; }
+    public void setStartMinute(Integer startMinute) { this.startMinute = startMinute; }
+    public Integer getEndMinute() { return endMinute; }
+    public void setEndMinute(Integer endMinute) { this.endMinute = endMinute; }
+    public byte[] getSeatMask() { return seatMask; }
+    public void setSeatMask(byte[] seatMask) { this.seatMask = seatMask; }
+    public Integer getSeatLayout() { return seatLayout; }
+    public void setSeatLayout(Integer seatLayout) { this.seatLayout = seatLayout; }
 }
@@ -0,0 +1,42 @@
+package com.miras.smartclub.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Событие жизненного цикла брони в append-only журнале: создание или смена статуса (PENDING → ACTIVE → CANCELLED).
+ * {@code id} — сквозной номер из sequences, события только добавляются. {@code state} — бронь после записи.
+ */
+@Document(collection = "reservation_events")
+public class ReservationJournalEntry {
+
+    public enum Type { CREATED, STATUS_CHANGED }
+
+    @Id
+    private Long id;
+    @Indexed
+    private String reservationId;
+    private Type type;
+    private Reservation.ReservationStatus previousStatus;
+    private Reservation.ReservationStatus status;
+    private Date at = new Date();
+    private ReservationState state;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public String getReservationId() { return reservationId; }
+    public void setReservationId(String reservationId) { this.reservationId = reservationId; }
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+    public Reservation.ReservationStatus getPreviousStatus() { return previousStatus; }
+    public void setPreviousStatus(Reservation.ReservationStatus previousStatus) { this.previousStatus = previousStatus; }
+    public Reservation.ReservationStatus getStatus() { return status; }
+    public void setStatus(Reservation.ReservationStatus status) { this.status = status; }
+    public Date getAt() { return at; }
+    public void setAt(Date at) { this.at = at; }
+    public ReservationState getState() { return state; }
+    public void setState(ReservationState state) { this.state = state; }
+}
@@ -0,0 +1,38 @@
+package com.miras.smartclub.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Часть снимка in-memory представления броней на номер события {@code seq} (снимок учитывает все события до него).
+ * Снимок режется на части, чтобы не упереться в 16 МБ на документ; {@code last} стоит только у последней,
+ * записанной после всех остальных, — снимок без неё неполный и при загрузке игнорируется.
+ */
+@Document(collection = "reservation_snapshots")
+@CompoundIndex(name = "seq_part", def = "{ 'seq': 1, 'part': 1 }")
+public class ReservationSnapshotChunk {
+    @Id
+    private String id;          // "seq:part"
+    private long seq;
+    private int part;
+    private boolean last;
+    private Date createdAt = new Date();
+    private List<ReservationState> entries;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public long getSeq() { return seq; }
+    public void setSeq(long seq) { this.seq = seq; }
+    public int getPart() { return part; }
+    public void setPart(int part) { this.part = part; }
+    public boolean isLast() { return last; }
+    public void setLast(boolean last) { this.last = last; }
+    public Date getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+    public List<ReservationState> getEntries() { return entries; }
+    public void setEntries(List<ReservationState> entries) { this.entries = entries; }
+}
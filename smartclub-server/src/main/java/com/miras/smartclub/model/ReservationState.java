@@ -0,0 +1,66 @@
+package com.miras.smartclub.model;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Компактное состояние брони для журнала и его снимков: только то, что нужно in-memory представлению.
+ * {@code version} — версия документа после записи (у только что созданной брони null): по ней
+ * применение событий не зависит от порядка их прихода.
+ */
+public class ReservationState {
+    private String reservationId;
+    private String clubId;
+    private String userId;
+    private List<String> seatIds;
+    private Date start;
+    private Date end;
+    private Reservation.ReservationStatus status;
+    private Date holdUntil;
+    private Long version;
+
+    public static ReservationState of(Reservation r) {
+        ReservationState s = new ReservationState();
+        s.reservationId = r.getId();
+        s.clubId = r.getClubId();
+        s.userId = r.getUserId();
+        s.seatIds = r.getSeatIds();
+        s.start = r.getStart();
+        s.end = r.getEnd();
+        s.status = r.getStatus();
+        s.holdUntil = r.getHoldUntil();
+        s.version = r.getVersion();
+        return s;
+    }
+
+    /**
+     * Держит ли бронь места: ACTIVE или PENDING со сроком holdUntil (неоплаченная бронь, холд листа ожидания).
+     */
+    public boolean isBlocking() {
+        return status == Reservation.ReservationStatus.ACTIVE
+                || (status == Reservation.ReservationStatus.PENDING && holdUntil != null);
+    }
+
+    public long versionOrZero() {
+        return version == null ? 0 : version;
+    }
+
+    public String getReservationId() { return reservationId; }
+    public void setReservationId(String reservationId) { this.reservationId = reservationId; }
+    public String getClubId() { return clubId; }
+    public void setClubId(String clubId) { this.clubId = clubId; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public List<String> getSeatIds() { return seatIds; }
+    public void setSeatIds(List<String> seatIds) { this.seatIds = seatIds; }
+    public Date getStart() { return start; }
+    public void setStart(Date start) { this.start = start; }
+    public Date getEnd() { return end; }
+    public void setEnd(Date end) { this.end = end; }
+    public Reservation.ReservationStatus getStatus() { return status; }
+    public void setStatus(Reservation.ReservationStatus status) { this.status = status; }
+    public Date getHoldUntil() { return holdUntil; }
+    public void setHoldUntil(Date holdUntil) { this.holdUntil = holdUntil; }
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+}
@@ -0,0 +1,17 @@
+package com.miras.smartclub.model;
+
+/**
+ * Результат атомарного перехода статуса: документ после записи и статус, из которого он вышел.
+ */
+public class ReservationTransition {
+    private final Reservation reservation;
+    private final Reservation.ReservationStatus previousStatus;
+
+    public ReservationTransition(Reservation reservation, Reservation.ReservationStatus previousStatus) {
+        this.reservation = reservation;
+        this.previousStatus = previousStatus;
+    }
+
+    public Reservation getReservation() { return reservation; }
+    public Reservation.ReservationStatus getPreviousStatus() { return previousStatus; }
+}
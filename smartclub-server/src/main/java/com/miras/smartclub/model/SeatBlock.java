@@ -0,0 +1,47 @@
+package com.miras.smartclub.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Операторская блокировка мест (ремонт, обслуживание) на окно [start, end). Не бронь: в историю и выручку не попадает,
+ * но overlap-запросы броней подмешивают блокировки через $unionWith (см. ReservationRepositoryImpl) —
+ * там они приходят как Reservation со статусом BLOCKED.
+ */
+@Document(collection = SeatBlock.COLLECTION)
+@CompoundIndex(name = "club_start", def = "{ 'clubId': 1, 'start': 1 }")
+public class SeatBlock {
+
+    public static final String COLLECTION = "seat_blocks";
+
+    @Id
+    private String id;
+    private String clubId;
+    private List<String> seatIds;
+    private Date start;
+    private Date end;
+    private String reason;
+    private String createdBy;
+    private Date createdAt = new Date();
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getClubId() { return clubId; }
+    public void setClubId(String clubId) { this.clubId = clubId; }
+    public List<String> getSeatIds() { return seatIds; }
+    public void setSeatIds(List<String> seatIds) { this.seatIds = seatIds; }
+    public Date getStart() { return start; }
+    public void setStart(Date start) { this.start = start; }
+    public Date getEnd() { return end; }
+    public void setEnd(Date end) { this.end = end; }
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+    public String getCreatedBy() { return createdBy; }
+    public void setCreatedBy(String createdBy) { this.createdBy = createdBy; }
+    public Date getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+}
@@ -2,6 +2,7 @@ package com.miras.smartclub.model;
 
 import com.miras.smartclub.enums.Role;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "users")
@@ -10,7 +11,8 @@ public class User {
     private String id;
     private String firstName;
     private String lastName;
-    private String phone;
+    @Indexed(unique = true)
+    private String phone; // нормализованный, см. PhoneUtils.normalize
     private String password;
     private Role role;
 
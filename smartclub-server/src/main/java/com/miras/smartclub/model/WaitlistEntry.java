@@ -0,0 +1,60 @@
+package com.miras.smartclub.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Запись листа ожидания: пользователь ждёт {@code seatCount} соседних мест в клубе на окно [start, end).
+ * Когда места освобождаются, запись получает холд — PENDING-бронь с holdUntil (см. WaitlistService).
+ */
+@Document(collection = "waitlist")
+public class WaitlistEntry {
+
+    public enum Status { WAITING, HELD, FULFILLED, EXPIRED, CANCELLED }
+
+    @Id
+    private String id;
+    @Indexed
+    private String clubId;
+    @Indexed
+    private String userId;
+    private Date start;
+    private Date end;
+    private int seatCount;
+    private Boolean vip;          // true — только VIP, false — только обычные, null — любые
+    private String packageId;
+    private Status status = Status.WAITING;
+    private Date createdAt = new Date();
+
+    @Indexed(sparse = true)
+    private String holdReservationId;
+    private Date holdUntil;
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    public String getClubId() { return clubId; }
+    public void setClubId(String clubId) { this.clubId = clubId; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public Date getStart() { return start; }
+    public void setStart(Date start) { this.start = start; }
+    public Date getEnd() { return end; }
+    public void setEnd(Date end) { this.end = end; }
+    public int getSeatCount() { return seatCount; }
+    public void setSeatCount(int seatCount) { this.seatCount = seatCount; }
+    public Boolean getVip() { return vip; }
+    public void setVip(Boolean vip) { this.vip = vip; }
+    public String getPackageId() { return packageId; }
+    public void setPackageId(String packageId) { this.packageId = packageId; }
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    public Date getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+    public String getHoldReservationId() { return holdReservationId; }
+    public void setHoldReservationId(String holdReservationId) { this.holdReservationId = holdReservationId; }
+    public Date getHoldUntil() { return holdUntil; }
+    public void setHoldUntil(Date holdUntil) { this.holdUntil = holdUntil; }
+}
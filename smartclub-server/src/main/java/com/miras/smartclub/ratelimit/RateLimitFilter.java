@@ -0,0 +1,65 @@
+package com.miras.smartclub.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Фильтр в цепочке SecurityConfig: отбивает запрос до Mongo/BCrypt, если ведро ключа пусто — 429 с Retry-After.
+ * Не бин, чтобы Boot не зарегистрировал его второй раз как обычный servlet-фильтр.
+ * Ключ без сессии — IP из {@code getRemoteAddr()}: за прокси нужен server.forward-headers-strategy=native
+ * (см. application-example.properties), тогда это адрес клиента из X-Forwarded-For доверенного прокси.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimitService rateLimitService;
+
+    public RateLimitFilter(RateLimitService rateLimitService) {
+        this.rateLimitService = rateLimitService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !rateLimitService.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Optional<RateLimitService.Rule> rule = rateLimitService.match(request.getMethod(), request.getServletPath());
+        if (rule.isEmpty()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long waitNanos = rule.get().limiter().tryAcquire(rule.get().name() + ":" + key(request, rule.get().keyBy()));
+        if (waitNanos == 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfter = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.setStatus(429);
+        response.setHeader("Retry-After", String.valueOf(retryAfter));
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"error\":\"Too many requests\",\"retryAfterSeconds\":" + retryAfter + "}");
+    }
+
+    private static String key(HttpServletRequest request, RateLimitService.KeyBy keyBy) {
+        if (keyBy == RateLimitService.KeyBy.USER) {
+            HttpSession session = request.getSession(false);
+            if (session != null) {
+                Object userId = session.getAttribute("userId");
+                return userId != null ? "u:" + userId : "s:" + session.getId();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
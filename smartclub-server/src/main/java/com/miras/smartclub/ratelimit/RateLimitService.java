@@ -0,0 +1,75 @@
+package com.miras.smartclub.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Правила допуска для горячих эндпоинтов. Ключ — userId из сессии, иначе id сессии, иначе IP;
+ * для логина — всегда IP (пользователь ещё неизвестен, а перебор паролей идёт с одного адреса).
+ */
+@Service
+public class RateLimitService {
+
+    public enum KeyBy { USER, IP }
+
+    public record Rule(String name, String method, String path, KeyBy keyBy, TokenBucketLimiter limiter) {}
+
+    private static final int STRIPES = 32;
+
+    private final boolean enabled;
+    private final List<Rule> rules;
+
+    public RateLimitService(@Value("${smartclub.rate-limit.enabled:true}") boolean enabled,
+                            @Value("${smartclub.rate-limit.max-keys:20000}") int maxKeys,
+                            @Value("${smartclub.rate-limit.availability.per-second:10}") double availabilityRate,
+                            @Value("${smartclub.rate-limit.availability.burst:20}") int availabilityBurst,
+                            @Value("${smartclub.rate-limit.reserve.per-second:2}") double reserveRate,
+                            @Value("${smartclub.rate-limit.reserve.burst:5}") int reserveBurst,
+                            @Value("${smartclub.rate-limit.login.per-second:0.2}") double loginRate,
+                            @Value("${smartclub.rate-limit.login.burst:5}") int loginBurst) {
+        this.enabled = enabled;
+        int perStripe = Math.max(16, maxKeys / STRIPES);
+        TokenBucketLimiter availability = new TokenBucketLimiter("availability", availabilityRate, availabilityBurst, STRIPES, perStripe);
+        this.rules = List.of(
+                new Rule("availability", "POST", "/booking/availability", KeyBy.USER, availability),
+                // реактивный read-path делит ведро с обычным — иначе лимит обходится сменой URL
+                new Rule("availability", "POST", "/r/booking/availability", KeyBy.USER, availability),
+                new Rule("reserve", "POST", "/booking/reserve", KeyBy.USER,
+                        new TokenBucketLimiter("reserve", reserveRate, reserveBurst, STRIPES, perStripe)),
+                new Rule("login", "POST", "/auth/login", KeyBy.IP,
+                        new TokenBucketLimiter("login", loginRate, loginBurst, STRIPES, perStripe))
+        );
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Правило для запроса; empty — эндпоинт не ограничивается.
+     */
+    public Optional<Rule> match(String method, String path) {
+        for (Rule r : rules) {
+            if (r.method().equalsIgnoreCase(method) && r.path().equals(path)) return Optional.of(r);
+        }
+        return Optional.empty();
+    }
+
+    public List<Map<String, Object>> stats() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        Set<TokenBucketLimiter> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Rule r : rules) {
+            if (!seen.add(r.limiter())) continue;
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("rule", r.name());
+            m.put("path", r.path());
+            m.put("allowed", r.limiter().getAllowed());
+            m.put("rejected", r.limiter().getRejected());
+            m.put("trackedKeys", r.limiter().trackedKeys());
+            result.add(m);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,95 @@
+package com.miras.smartclub.ratelimit;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket на ключ (пользователь, сессия, IP). Состояние ведра — один long в форме GCRA
+ * («теоретическое время прихода» следующего запроса), поэтому списание токена — один CAS без локов.
+ * Ведра лежат в полосах: каждая полоса — маленький LRU на {@code maxKeysPerStripe} ключей, лок полосы
+ * держится только на время поиска ведра. Память ограничена stripes × maxKeysPerStripe; простаивающие
+ * ключи вытесняются первыми (вытесненный ключ начинает с полным ведром — это безопасная сторона).
+ */
+public class TokenBucketLimiter {
+
+    private final String name;
+    private final long intervalNanos;   // на один токен
+    private final long burstNanos;      // допуск на пачку: (burst - 1) интервалов
+    private final Stripe[] stripes;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public TokenBucketLimiter(String name, double permitsPerSecond, int burst, int stripeCount, int maxKeysPerStripe) {
+        if (permitsPerSecond <= 0 || burst <= 0) throw new IllegalArgumentException("rate and burst must be positive");
+        this.name = name;
+        this.intervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstNanos = intervalNanos * (burst - 1);
+        int n = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) stripes[i] = new Stripe(maxKeysPerStripe);
+    }
+
+    /**
+     * 0 — запрос пропущен; иначе сколько наносекунд ждать до следующего токена.
+     */
+    public long tryAcquire(String key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    long tryAcquire(String key, long now) {
+        AtomicLong tat = stripeFor(key).bucket(key, now);
+        while (true) {
+            long current = tat.get();
+            long base = Math.max(current, now);
+            long wait = base - burstNanos - now;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (tat.compareAndSet(current, base + intervalNanos)) {
+                allowed.increment();
+                return 0;
+            }
+        }
+    }
+
+    public String getName() { return name; }
+    public long getAllowed() { return allowed.sum(); }
+    public long getRejected() { return rejected.sum(); }
+
+    public int trackedKeys() {
+        int total = 0;
+        for (Stripe s : stripes) total += s.size();
+        return total;
+    }
+
+    private Stripe stripeFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (stripes.length - 1)];
+    }
+
+    private static final class Stripe {
+        private final LinkedHashMap<String, AtomicLong> buckets;
+
+        Stripe(int maxKeys) {
+            this.buckets = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, AtomicLong> eldest) {
+                    return size() > maxKeys;
+                }
+            };
+        }
+
+        synchronized AtomicLong bucket(String key, long now) {
+            return buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        synchronized int size() {
+            return buckets.size();
+        }
+    }
+}
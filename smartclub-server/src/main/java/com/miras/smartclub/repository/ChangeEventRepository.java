@@ -0,0 +1,14 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.ChangeEvent;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChangeEventRepository extends MongoRepository<ChangeEvent, Long> {
+    List<ChangeEvent> findTop500BySeqGreaterThanOrderBySeqAsc(Long seq);
+    Optional<ChangeEvent> findTopByOrderBySeqDesc();
+}
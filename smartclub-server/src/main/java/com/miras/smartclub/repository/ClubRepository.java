@@ -5,5 +5,5 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface ClubRepository extends MongoRepository<Club, String> {
+public interface ClubRepository extends MongoRepository<Club, String>, ClubRepositoryCustom {
 }
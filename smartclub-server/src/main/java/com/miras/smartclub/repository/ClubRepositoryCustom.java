@@ -0,0 +1,27 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.Club;
+import org.springframework.data.geo.GeoResults;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ClubRepositoryCustom {
+
+    /**
+     * $geoNear по 2dsphere-индексу на position: клубы в радиусе, по возрастанию расстояния.
+     */
+    GeoResults<Club> findNear(double latitude, double longitude, double radiusKm, int limit);
+
+    /**
+     * Upsert клубов по _id одной unordered bulk-операцией; $set только заданных полей,
+     * так что уже существующий прайс не затирается, если в записи его нет.
+     */
+    void bulkUpsert(List<Club> clubs);
+
+    /**
+     * Позиции прайса в клубы (ключ — clubId) одной bulk-операцией: позиция с тем же (service, category) заменяется,
+     * так что повторный импорт прайс не задваивает. Возвращает число позиций, для которых клуб найден.
+     */
+    int bulkAddPrices(List<Map.Entry<String, Club.PriceItem>> prices);
+}
@@ -0,0 +1,65 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.Club;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class ClubRepositoryImpl implements ClubRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public GeoResults<Club> findNear(double latitude, double longitude, double radiusKm, int limit) {
+        NearQuery near = NearQuery.near(new GeoJsonPoint(longitude, latitude))
+                .spherical(true)
+                .in(Metrics.KILOMETERS)
+                .maxDistance(new Distance(radiusKm, Metrics.KILOMETERS))
+                .limit(limit);
+        return mongoTemplate.geoNear(near, Club.class);
+    }
+
+    @Override
+    public void bulkUpsert(List<Club> clubs) {
+        if (clubs.isEmpty()) return;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Club.class);
+        for (Club c : clubs) {
+            Document doc = new Document();
+            mongoTemplate.getConverter().write(c, doc);
+            doc.remove("_id");
+            Update update = new Update();
+            doc.forEach(update::set);
+            bulk.upsert(Query.query(Criteria.where("_id").is(c.getId())), update);
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public int bulkAddPrices(List<Map.Entry<String, Club.PriceItem>> prices) {
+        if (prices.isEmpty()) return 0;
+        // ordered: $pull позиции с тем же ключом должен пройти до $push новой, иначе повторный импорт задвоит прайс
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, Club.class);
+        for (Map.Entry<String, Club.PriceItem> p : prices) {
+            Query club = Query.query(Criteria.where("_id").is(p.getKey()));
+            Document sameKey = new Document("service", p.getValue().getService())
+                    .append("category", p.getValue().getCategory());
+            bulk.updateOne(club, new Update().pull("prices", sameKey));
+            bulk.updateOne(club, new Update().push("prices", p.getValue()));
+        }
+        // обе операции находят клуб, если он есть: клубов вдвое меньше, чем совпадений
+        return bulk.execute().getMatchedCount() / 2;
+    }
+}
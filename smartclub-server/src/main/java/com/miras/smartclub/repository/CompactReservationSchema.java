@@ -0,0 +1,215 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.Seat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Компактная форма брони для overlap-запросов (smartclub.reservations.compact-schema.*):
+ * окно — целые минуты эпохи (sm/em, start округляется вниз, end вверх), места — битовая маска по Seat.order (sb, BinData),
+ * плюс отпечаток раскладки мест (sv). Индекс club_overlap {clubId, em, sm, sb} не multikey и частичный:
+ * в нём только документы с компактными полями, а пересечение по местам проверяется $bitsAnySet прямо по ключам индекса.
+ * <p>
+ * Миграция в две фазы. write — поля проставляются при каждой записи (BeforeConvert) и дозаполняются {@link #migrate}
+ * для старых документов; обычные поля (seatIds, start, end) остаются, их читают остальные запросы.
+ * read — overlap-запросы клуба идут по компактным полям, но только когда миграция клуба подтвердила,
+ * что у всех его броней поля посчитаны по текущей раскладке; до того — прежний запрос (dual read).
+ * Включать read, когда write включён на всех узлах.
+ */
+@Component
+public class CompactReservationSchema implements BeforeConvertCallback<Reservation> {
+
+    // маска в байтах растёт с максимальным order; клубы с order вне [0, MAX_ORDINAL] или с дублями остаются на обычной схеме
+    static final int MAX_ORDINAL = 1023;
+    private static final int MIGRATION_BATCH = 500;
+
+    private final SeatRepository seatRepository;
+    private final MongoTemplate mongoTemplate;
+    private final boolean writeEnabled;
+    private final boolean readEnabled;
+
+    private final Map<String, Optional<Layout>> layouts = new ConcurrentHashMap<>();
+    // клуб → отпечаток раскладки, для которой миграция подтверждена
+    private final Map<String, Integer> readable = new ConcurrentHashMap<>();
+
+    public CompactReservationSchema(SeatRepository seatRepository,
+                                    MongoTemplate mongoTemplate,
+                                    @Value("${smartclub.reservations.compact-schema.write:false}") boolean writeEnabled,
+                                    @Value("${smartclub.reservations.compact-schema.read:false}") boolean readEnabled) {
+        this.seatRepository = seatRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.writeEnabled = writeEnabled;
+        this.readEnabled = writeEnabled && readEnabled;
+    }
+
+    @Override
+    public Reservation onBeforeConvert(Reservation r, String collection) {
+        if (writeEnabled) encode(r);
+        return r;
+    }
+
+    public boolean isWriteEnabled() {
+        return writeEnabled;
+    }
+
+    /**
+     * Маска мест для overlap-запроса клуба по компактным полям; null — идти прежним путём
+     * (read выключен, миграция клуба не подтверждена или среди мест есть неизвестные раскладке).
+     */
+    byte[] queryMask(String clubId, Collection<String> seatIds) {
+        Layout layout = readableLayout(clubId);
+        if (layout == null) return null;
+        byte[] mask = new byte[layout.bytes()];
+        for (String id : seatIds) {
+            Integer ordinal = layout.ordinals().get(id);
+            if (ordinal == null) return null;
+            mask[ordinal >>> 3] |= (byte) (1 << (ordinal & 7));
+        }
+        return mask;
+    }
+
+    /**
+     * Можно ли читать клуб по компактным полям (для запросов без фильтра по местам).
+     */
+    boolean isReadable(String clubId) {
+        return readableLayout(clubId) != null;
+    }
+
+    private Layout readableLayout(String clubId) {
+        if (!readEnabled || clubId == null) return null;
+        Integer migrated = readable.get(clubId);
+        if (migrated == null) return null;
+        Layout layout = layout(clubId);
+        return layout != null && layout.fingerprint() == migrated ? layout : null;
+    }
+
+    /**
+     * Раскладка мест клуба изменилась: маски старых броней могут не совпадать с новыми order —
+     * клуб уходит на прежний путь до повторной миграции.
+     */
+    public void invalidate(String clubId) {
+        readable.remove(clubId);
+        layouts.remove(clubId);
+    }
+
+    /**
+     * Дозаполнить компактные поля у броней клуба, посчитанных не по текущей раскладке (или без них), пачками по 500.
+     * Повторяет проход, пока такие брони находятся (ловит записи, успевшие пройти со старой раскладкой),
+     * после чего клуб становится доступен для чтения. Возвращает число обновлённых документов.
+     */
+    public long migrate(String clubId) {
+        Layout layout = layout(clubId);
+        if (layout == null) {
+            System.out.println("[COMPACT] club " + clubId + " is not eligible (seat order not unique or out of range)");
+            return 0;
+        }
+
+        long updated = 0;
+        Set<String> skipped = new HashSet<>();
+        while (true) {
+            Query query = Query.query(Criteria.where("clubId").is(clubId)
+                    .and("seatLayout").ne(layout.fingerprint())
+                    .and("_id").nin(skipped)).limit(MIGRATION_BATCH);
+            query.fields().include("clubId", "seatIds", "start", "end");
+            List<Reservation> batch = mongoTemplate.find(query, Reservation.class);
+            if (batch.isEmpty()) break;
+
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Reservation.class);
+            int ops = 0;
+            for (Reservation r : batch) {
+                if (!encode(r, layout)) {
+                    skipped.add(r.getId());
+                    continue;
+                }
+                bulk.updateOne(Query.query(Criteria.where("_id").is(r.getId())), new Update()
+                        .set("startMinute", r.getStartMinute())
+                        .set("endMinute", r.getEndMinute())
+                        .set("seatMask", r.getSeatMask())
+                        .set("seatLayout", r.getSeatLayout()));
+                ops++;
+            }
+            if (ops > 0) updated += bulk.execute().getModifiedCount();
+        }
+
+        if (skipped.isEmpty()) {
+            readable.put(clubId, layout.fingerprint());
+            System.out.println("[COMPACT] club " + clubId + " migrated: " + updated + " reservation(s) updated");
+        } else {
+            // без start/end бронь не попадёт в компактный индекс — клуб остаётся на прежнем пути
+            System.err.println("[COMPACT] club " + clubId + ": " + skipped.size() + " reservation(s) without start/end, reads stay on seatIds");
+        }
+        return updated;
+    }
+
+    private void encode(Reservation r) {
+        Layout layout = r.getClubId() == null ? null : layout(r.getClubId());
+        if (layout == null || !encode(r, layout)) {
+            // неподходящий клуб: полей нет, документ не попадает в частичный индекс
+            r.setStartMinute(null);
+            r.setEndMinute(null);
+            r.setSeatMask(null);
+            r.setSeatLayout(null);
+        }
+    }
+
+    private static boolean encode(Reservation r, Layout layout) {
+        if (r.getStart() == null || r.getEnd() == null) return false;
+        byte[] mask = new byte[layout.bytes()];
+        if (r.getSeatIds() != null) {
+            for (String id : r.getSeatIds()) {
+                // удалённое место в маску не попадает: запросы по нему (неизвестному раскладке) идут прежним путём
+                Integer ordinal = layout.ordinals().get(id);
+                if (ordinal != null) mask[ordinal >>> 3] |= (byte) (1 << (ordinal & 7));
+            }
+        }
+        r.setStartMinute(floorMinute(r.getStart()));
+        r.setEndMinute(ceilMinute(r.getEnd()));
+        r.setSeatMask(mask);
+        r.setSeatLayout(layout.fingerprint());
+        return true;
+    }
+
+    static int floorMinute(Date d) {
+        return (int) Math.floorDiv(d.getTime(), 60_000L);
+    }
+
+    static int ceilMinute(Date d) {
+        return (int) -Math.floorDiv(-d.getTime(), 60_000L);
+    }
+
+    private Layout layout(String clubId) {
+        return layouts.computeIfAbsent(clubId, id -> Optional.ofNullable(Layout.of(seatRepository.findByClubIdOrderByOrderAsc(id))))
+                .orElse(null);
+    }
+
+    /**
+     * Номер бита места — его Seat.order; отпечаток — хеш пар (id, order).
+     */
+    private record Layout(Map<String, Integer> ordinals, int fingerprint, int bytes) {
+
+        static Layout of(List<Seat> seats) {
+            Map<String, Integer> ordinals = new HashMap<>();
+            Set<Integer> used = new HashSet<>();
+            int max = 0;
+            int fingerprint = 1;
+            for (Seat s : seats) {
+                int order = s.getOrder();
+                if (order < 0 || order > MAX_ORDINAL || !used.add(order)) return null;
+                ordinals.put(s.getId(), order);
+                max = Math.max(max, order);
+                fingerprint = 31 * fingerprint + Objects.hash(s.getId(), order);
+            }
+            return new Layout(Map.copyOf(ordinals), fingerprint, (max >>> 3) + 1);
+        }
+    }
+}
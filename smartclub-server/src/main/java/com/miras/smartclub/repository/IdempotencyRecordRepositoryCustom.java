@@ -0,0 +1,17 @@
+package com.miras.smartclub.repository;
+
+import java.util.Date;
+
+public interface IdempotencyRecordRepositoryCustom {
+
+    /**
+     * Перехватить захват IN_PROGRESS, если его аренда всё ещё {@code observedLease} (compare-and-set):
+     * аренда продлевается до {@code newLease}. false — захват уже завершён, удалён или перехвачен другим.
+     */
+    boolean takeOver(String id, Date observedLease, Date newLease);
+
+    /**
+     * Удалить захват, только если он ещё наш (аренда {@code lease}): перехваченный чужой захват не трогаем.
+     */
+    void release(String id, Date lease);
+}
@@ -0,0 +1,32 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.IdempotencyRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+
+@RequiredArgsConstructor
+public class IdempotencyRecordRepositoryImpl implements IdempotencyRecordRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public boolean takeOver(String id, Date observedLease, Date newLease) {
+        Query query = Query.query(Criteria.where("_id").is(id)
+                .and("state").is(IdempotencyRecord.State.IN_PROGRESS)
+                .and("lockedUntil").is(observedLease));
+        return mongoTemplate.updateFirst(query, new Update().set("lockedUntil", newLease), IdempotencyRecord.class)
+                .getModifiedCount() == 1;
+    }
+
+    @Override
+    public void release(String id, Date lease) {
+        mongoTemplate.remove(Query.query(Criteria.where("_id").is(id)
+                .and("state").is(IdempotencyRecord.State.IN_PROGRESS)
+                .and("lockedUntil").is(lease)), IdempotencyRecord.class);
+    }
+}
@@ -0,0 +1,13 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.OccupancyRollupPending;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OccupancyRollupPendingRepository extends MongoRepository<OccupancyRollupPending, String> {
+
+    List<OccupancyRollupPending> findByClubId(String clubId);
+}
@@ -0,0 +1,9 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.OccupancyRollupRebuild;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OccupancyRollupRebuildRepository extends MongoRepository<OccupancyRollupRebuild, String> {
+}
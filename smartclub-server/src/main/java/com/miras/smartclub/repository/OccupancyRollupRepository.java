@@ -0,0 +1,18 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.OccupancyRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface OccupancyRollupRepository extends MongoRepository<OccupancyRollup, String>, OccupancyRollupRepositoryCustom {
+
+    @Query(value = "{ 'clubId': ?0, 'granularity': ?1, 'bucketStart': { $gte: ?2, $lt: ?3 } }", sort = "{ 'bucketStart': 1 }")
+    List<OccupancyRollup> findRange(String clubId, OccupancyRollup.Granularity granularity, Date from, Date to);
+
+    void deleteByClubId(String clubId);
+}
@@ -0,0 +1,19 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.OccupancyRollup;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface OccupancyRollupRepositoryCustom {
+
+    /**
+     * Upsert + $inc по каждому бакету одной unordered bulk-операцией.
+     */
+    void applyDeltas(Collection<OccupancyRollup.Delta> deltas);
+
+    /**
+     * Клубы, по которым есть хоть один бакет.
+     */
+    List<String> findClubIds();
+}
@@ -0,0 +1,40 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.OccupancyRollup;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class OccupancyRollupRepositoryImpl implements OccupancyRollupRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void applyDeltas(Collection<OccupancyRollup.Delta> deltas) {
+        if (deltas == null || deltas.isEmpty()) return;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OccupancyRollup.class);
+        for (OccupancyRollup.Delta d : deltas) {
+            Update update = new Update()
+                    .setOnInsert("clubId", d.getClubId())
+                    .setOnInsert("granularity", d.getGranularity())
+                    .setOnInsert("bucketStart", d.getBucketStart())
+                    .inc("occupancyMinutes", d.getOccupancyMinutes())
+                    .inc("revenue", d.getRevenue())
+                    .inc("reservations", d.getReservations());
+            bulk.upsert(Query.query(Criteria.where("_id").is(d.getId())), update);
+        }
+        bulk.execute();
+    }
+
+    @Override
+    public List<String> findClubIds() {
+        return mongoTemplate.findDistinct(new Query(), "clubId", OccupancyRollup.class, String.class);
+    }
+}
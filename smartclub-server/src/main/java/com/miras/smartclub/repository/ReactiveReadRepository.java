@@ -0,0 +1,59 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.Club;
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.Seat;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+
+/**
+ * Чтения через реактивный драйвер: документы отдаются по мере прихода из курсора,
+ * поток запроса не блокируется на ожидании Mongo. Записи остаются на блокирующих репозиториях.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactiveReadRepository {
+
+    private final ReactiveMongoTemplate template;
+
+    public Flux<Club> clubs() {
+        return template.findAll(Club.class);
+    }
+
+    public Mono<Club> club(String id) {
+        return template.findById(id, Club.class);
+    }
+
+    public Flux<Seat> seats(String clubId) {
+        return template.find(Query.query(Criteria.where("clubId").is(clubId)).with(Sort.by("order")), Seat.class);
+    }
+
+    /**
+     * Брони и блокировки, занимающие места клуба в окне [start, end) — та же агрегация, что у блокирующего пути.
+     */
+    public Flux<Reservation> occupying(String clubId, Date start, Date end) {
+        Criteria scope = Criteria.where("clubId").is(clubId).and("start").lt(end).and("end").gt(start);
+        return template.aggregate(ReservationQueries.withBlocks(scope), Reservation.class, Reservation.class);
+    }
+
+    /**
+     * История пользователя, новые первыми, только поля для списка. Курсор читается пачками по {@code batchSize};
+     * отмена подписки (клиент ушёл, take(n) набрал своё) закрывает курсор.
+     */
+    public Flux<Reservation> history(String userId, int batchSize) {
+        Query query = Query.query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "start"))
+                .cursorBatchSize(batchSize);
+        query.fields().include("clubId", "seatIds", "start", "end", "durationMinutes", "packageId",
+                "totalPrice", "status", "createdAt", "cancelledAt");
+        return template.find(query, Reservation.class);
+    }
+}
@@ -0,0 +1,337 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.ReservationTransition;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Групповая запись броней (smartclub.reservations.group-commit.enabled, по умолчанию выключена).
+ * Вставки и переходы статуса, пришедшие за {@code windowMs}, уходят одной unordered bulk-операцией —
+ * один round trip и одно подтверждение write concern на группу. Каждый вызывающий получает свой результат:
+ * сохранённую бронь, ошибку своей вставки или результат своего перехода — как при одиночной записи.
+ * <p>
+ * Переход статуса в группе: пре-образы читаются одним find, guard проверяется по ним, а в bulk идёт updateOne
+ * с точным (status, version) из пре-образа и меткой записи в writeIds. Если bulk изменил не все документы,
+ * по меткам видно, чьи записи прошли; не прошедшие (бронь успели изменить между чтением и записью)
+ * повторяются одиночным findAndModify — семантика guard'а та же.
+ * <p>
+ * Ещё не записанные вставки, которые держат места, видны через {@link #pendingOverlapping}: проверка конфликтов
+ * учитывает их, поэтому лок клуба можно отпускать, не дожидаясь записи группы. Брони из /reserve и подбора блока
+ * приходят сюда PENDING со сроком оплаты holdUntil (ReservationService.withDefaults) и попадают в оверлей;
+ * вставка, которая мест не держит, в оверлей не попадает — её и после записи не увидит ни одна проверка.
+ */
+@Repository
+public class ReservationGroupCommit {
+
+    private static final String WRITE_IDS = "writeIds";
+    // у брони не больше двух переходов за жизнь (PENDING → ACTIVE → CANCELLED) — метка не вытесняется
+    private static final int WRITE_IDS_KEPT = 4;
+
+    private final MongoTemplate mongoTemplate;
+    private final ReservationRepository reservationRepository;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxBatch;
+
+    private final BlockingQueue<Op> queue = new LinkedBlockingQueue<>();
+    private final Map<String, Set<Reservation>> pendingByClub = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private Thread flusher;
+
+    public ReservationGroupCommit(MongoTemplate mongoTemplate,
+                                  ReservationRepository reservationRepository,
+                                  @Value("${smartclub.reservations.group-commit.enabled:false}") boolean enabled,
+                                  @Value("${smartclub.reservations.group-commit.window-ms:3}") long windowMs,
+                                  @Value("${smartclub.reservations.group-commit.max-batch:500}") int maxBatch) {
+        this.mongoTemplate = mongoTemplate;
+        this.reservationRepository = reservationRepository;
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxBatch = maxBatch;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        flusher = new Thread(this::loop, "reservation-group-commit");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) return;
+        running = false;
+        flusher.interrupt();
+        flusher.join(5000);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public CompletableFuture<Reservation> insert(Reservation r) {
+        // id заранее: он нужен вызывающему и оверлею до записи
+        if (r.getId() == null) r.setId(new ObjectId().toHexString());
+        InsertOp op = new InsertOp(r);
+        if (holdsSeats(r)) pendingByClub.computeIfAbsent(r.getClubId(), k -> ConcurrentHashMap.newKeySet()).add(r);
+        enqueue(op);
+        return op.future;
+    }
+
+    public CompletableFuture<Optional<ReservationTransition>> transition(String reservationId, String ownerUserId,
+                                                                        Collection<Reservation.ReservationStatus> from,
+                                                                        Reservation.ReservationStatus to,
+                                                                        Map<String, Object> fields) {
+        TransitionOp op = new TransitionOp(reservationId, ownerUserId, from, to, fields);
+        enqueue(op);
+        return op.future;
+    }
+
+    /**
+     * Ещё не записанные брони клуба, которые держат места и пересекаются с [start, end);
+     * {@code seatIds} == null — по любым местам.
+     */
+    public List<Reservation> pendingOverlapping(String clubId, Collection<String> seatIds, Date start, Date end) {
+        Set<Reservation> pending = pendingByClub.get(clubId);
+        if (pending == null || pending.isEmpty()) return Collections.emptyList();
+        List<Reservation> result = new ArrayList<>();
+        for (Reservation r : pending) {
+            if (!r.getStart().before(end) || !r.getEnd().after(start)) continue;
+            if (seatIds != null && (r.getSeatIds() == null || Collections.disjoint(r.getSeatIds(), seatIds))) continue;
+            result.add(r);
+        }
+        return result;
+    }
+
+    // то же условие, что ReservationQueries.blocking(): оверлей должен совпадать с тем, что увидит запрос после записи
+    private static boolean holdsSeats(Reservation r) {
+        return r.getStatus() == Reservation.ReservationStatus.ACTIVE
+                || (r.getStatus() == Reservation.ReservationStatus.PENDING && r.getHoldUntil() != null);
+    }
+
+    private void enqueue(Op op) {
+        if (!running) {
+            if (op instanceof InsertOp i) unpend(i.reservation);
+            op.fail(new IllegalStateException("Reservation group commit is not running"));
+            return;
+        }
+        queue.add(op);
+    }
+
+    private void loop() {
+        List<Op> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Op first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) break;
+                    Op next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // stop(): дописываем то, что уже набрано и стоит в очереди
+                queue.drainTo(batch);
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch = new ArrayList<>();
+            }
+        }
+    }
+
+    private void flush(List<Op> batch) {
+        List<InsertOp> inserts = new ArrayList<>();
+        List<TransitionOp> transitions = new ArrayList<>();
+        for (Op op : batch) {
+            if (op instanceof InsertOp i) inserts.add(i);
+            else transitions.add((TransitionOp) op);
+        }
+        try {
+            flushInserts(inserts);
+        } catch (RuntimeException e) {
+            System.err.println("[GROUP-COMMIT] insert batch of " + inserts.size() + " failed: " + e.getMessage());
+            for (InsertOp op : inserts) {
+                unpend(op.reservation);
+                op.fail(e);
+            }
+        }
+        try {
+            flushTransitions(transitions);
+        } catch (RuntimeException e) {
+            System.err.println("[GROUP-COMMIT] transition batch of " + transitions.size() + " failed: " + e.getMessage());
+            for (TransitionOp op : transitions) op.fail(e);
+        }
+    }
+
+    private void flushInserts(List<InsertOp> ops) {
+        if (ops.isEmpty()) return;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Reservation.class);
+        bulk.insert(ops.stream().map(op -> op.reservation).toList());
+
+        Map<Integer, String> errors = new HashMap<>();
+        try {
+            bulk.execute();
+        } catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) errors.put(error.getIndex(), error.getMessage());
+        }
+
+        for (int i = 0; i < ops.size(); i++) {
+            InsertOp op = ops.get(i);
+            unpend(op.reservation);
+            String error = errors.get(i);
+            if (error == null) op.future.complete(op.reservation);
+            else op.fail(new IllegalStateException("Reservation insert failed: " + error));
+        }
+    }
+
+    private void flushTransitions(List<TransitionOp> ops) {
+        if (ops.isEmpty()) return;
+
+        // в bulk — по одной записи на бронь; повторные переходы той же брони идут после, одиночно
+        Map<String, TransitionOp> firstPerId = new LinkedHashMap<>();
+        List<TransitionOp> single = new ArrayList<>();
+        for (TransitionOp op : ops) {
+            if (firstPerId.putIfAbsent(op.reservationId, op) != null) single.add(op);
+        }
+
+        Map<String, Reservation> pre = new HashMap<>();
+        for (Reservation r : mongoTemplate.find(Query.query(Criteria.where("_id").in(firstPerId.keySet())), Reservation.class)) {
+            pre.put(r.getId(), r);
+        }
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Reservation.class);
+        List<TransitionOp> submitted = new ArrayList<>();
+        for (TransitionOp op : firstPerId.values()) {
+            Reservation p = pre.get(op.reservationId);
+            boolean guard = p != null && op.from.contains(p.getStatus())
+                    && (op.ownerUserId == null || op.ownerUserId.equals(p.getUserId()));
+            if (!guard) {
+                op.future.complete(Optional.empty());
+                continue;
+            }
+            op.pre = p;
+            op.writeId = new ObjectId().toHexString();
+
+            Criteria criteria = Criteria.where("_id").is(op.reservationId).and("status").is(p.getStatus());
+            criteria = p.getVersion() == null ? criteria.and("version").exists(false) : criteria.and("version").is(p.getVersion());
+            Update update = new Update().set("status", op.to).inc("version", 1);
+            if (op.fields != null) op.fields.forEach(update::set);
+            update.push(WRITE_IDS).slice(-WRITE_IDS_KEPT).each(op.writeId);
+            bulk.updateOne(Query.query(criteria), update);
+            submitted.add(op);
+        }
+
+        if (!submitted.isEmpty()) {
+            BulkWriteResult result = bulk.execute();
+            Set<String> applied = result.getModifiedCount() == submitted.size()
+                    ? null // все записи прошли — перечитывать не нужно
+                    : appliedWriteIds(submitted);
+            for (TransitionOp op : submitted) {
+                if (applied == null || applied.contains(op.writeId)) {
+                    op.future.complete(Optional.of(ReservationQueries.applied(op.pre, op.to, op.fields)));
+                } else {
+                    single.add(op);
+                }
+            }
+        }
+
+        for (TransitionOp op : single) {
+            try {
+                op.future.complete(reservationRepository.transition(op.reservationId, op.ownerUserId, op.from, op.to, op.fields));
+            } catch (RuntimeException e) {
+                op.fail(e);
+            }
+        }
+    }
+
+    private Set<String> appliedWriteIds(List<TransitionOp> ops) {
+        List<Object> ids = new ArrayList<>();
+        for (TransitionOp op : ops) {
+            ids.add(ObjectId.isValid(op.reservationId) ? new ObjectId(op.reservationId) : op.reservationId);
+        }
+        Query query = Query.query(Criteria.where("_id").in(ids));
+        query.fields().include(WRITE_IDS);
+
+        Set<String> applied = new HashSet<>();
+        for (Document d : mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Reservation.class))) {
+            List<String> writeIds = d.getList(WRITE_IDS, String.class);
+            if (writeIds != null) applied.addAll(writeIds);
+        }
+        return applied;
+    }
+
+    private void unpend(Reservation r) {
+        Set<Reservation> pending = pendingByClub.get(r.getClubId());
+        if (pending != null) pending.remove(r);
+    }
+
+    private abstract static class Op {
+        abstract void fail(Throwable e);
+    }
+
+    private static final class InsertOp extends Op {
+        final Reservation reservation;
+        final CompletableFuture<Reservation> future = new CompletableFuture<>();
+
+        InsertOp(Reservation reservation) {
+            this.reservation = reservation;
+        }
+
+        @Override
+        void fail(Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static final class TransitionOp extends Op {
+        final String reservationId;
+        final String ownerUserId;
+        final Collection<Reservation.ReservationStatus> from;
+        final Reservation.ReservationStatus to;
+        final Map<String, Object> fields;
+        final CompletableFuture<Optional<ReservationTransition>> future = new CompletableFuture<>();
+        Reservation pre;
+        String writeId;
+
+        TransitionOp(String reservationId, String ownerUserId, Collection<Reservation.ReservationStatus> from,
+                     Reservation.ReservationStatus to, Map<String, Object> fields) {
+            this.reservationId = reservationId;
+            this.ownerUserId = ownerUserId;
+            this.from = from;
+            this.to = to;
+            this.fields = fields;
+        }
+
+        @Override
+        void fail(Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
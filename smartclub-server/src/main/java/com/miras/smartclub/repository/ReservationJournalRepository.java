@@ -0,0 +1,14 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.ReservationJournalEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReservationJournalRepository extends MongoRepository<ReservationJournalEntry, Long> {
+    List<ReservationJournalEntry> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    List<ReservationJournalEntry> findByReservationIdOrderByIdAsc(String reservationId);
+}
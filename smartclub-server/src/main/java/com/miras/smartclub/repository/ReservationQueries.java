@@ -0,0 +1,67 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.ReservationTransition;
+import com.miras.smartclub.model.SeatBlock;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.Map;
+
+/**
+ * Общие части запросов по броням: overlap-агрегация для блокирующего (ReservationRepositoryImpl) и реактивного
+ * (ReactiveReadRepository) путей, достройка результата перехода статуса для одиночной и групповой записи.
+ */
+final class ReservationQueries {
+
+    private ReservationQueries() {}
+
+    /**
+     * Брони в {@code scope}, держащие места, плюс блокировки мест в том же {@code scope} — одним запросом.
+     * Блокировки приходят как Reservation со статусом BLOCKED (id блокировки, clubId, seatIds, start, end).
+     */
+    static Aggregation withBlocks(Criteria scope) {
+        return withBlocks(scope, scope);
+    }
+
+    /**
+     * То же с разными условиями для броней и блокировок: у блокировок нет компактных полей (см. CompactReservationSchema).
+     */
+    static Aggregation withBlocks(Criteria reservationScope, Criteria blockScope) {
+        return Aggregation.newAggregation(
+                Aggregation.match(new Criteria().andOperator(reservationScope, blocking())),
+                UnionWithOperation.unionWith(SeatBlock.COLLECTION).pipeline(
+                        Aggregation.match(blockScope),
+                        Aggregation.project("clubId", "seatIds", "start", "end"),
+                        Aggregation.addFields().addFieldWithValue("status", Reservation.ReservationStatus.BLOCKED.name()).build())
+        );
+    }
+
+    /**
+     * Брони, которые держат места: ACTIVE и PENDING со сроком holdUntil — неоплаченные брони и холды листа ожидания.
+     * Истёкшие холды снимает sweep (WaitlistService), до него они ещё держат места.
+     */
+    static Criteria blocking() {
+        return new Criteria().orOperator(
+                Criteria.where("status").is(Reservation.ReservationStatus.ACTIVE),
+                Criteria.where("status").is(Reservation.ReservationStatus.PENDING).and("holdUntil").ne(null));
+    }
+
+    /**
+     * Состояние после перехода: {@code pre} — документ до записи; переход детерминирован (статус, $set полей, version + 1),
+     * поэтому новый документ достраивается без повторного чтения.
+     */
+    static ReservationTransition applied(Reservation pre, Reservation.ReservationStatus to, Map<String, Object> fields) {
+        Reservation.ReservationStatus previous = pre.getStatus();
+        pre.setStatus(to);
+        pre.setVersion(pre.getVersion() == null ? 1L : pre.getVersion() + 1);
+        if (fields != null) {
+            BeanWrapper bean = new BeanWrapperImpl(pre);
+            fields.forEach(bean::setPropertyValue);
+        }
+        return new ReservationTransition(pre, previous);
+    }
+}
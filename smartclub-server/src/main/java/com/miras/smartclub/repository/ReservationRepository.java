@@ -2,23 +2,26 @@ package com.miras.smartclub.repository;
 
 import com.miras.smartclub.model.Reservation;
 import org.springframework.data.mongodb.repository.MongoRepository;
-import org.springframework.data.mongodb.repository.Query;
 
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface ReservationRepository extends MongoRepository<Reservation, String> {
+public interface ReservationRepository extends MongoRepository<Reservation, String>, ReservationRepositoryCustom {
 
     List<Reservation> findByUserIdOrderByStartDesc(String userId);
 
     List<Reservation> findByClubId(String clubId);
 
-    @Query("{ 'clubId': ?0, 'seatIds': { $in: ?1 }, 'status': 'ACTIVE', 'start': { $lt: ?3 }, 'end': { $gt: ?2 } }")
-    List<Reservation> findActiveOverlapping(String clubId, List<String> seatIds, Date start, Date end);
+    // Холды (неоплаченные брони и холды листа ожидания) с истёкшим сроком
+    List<Reservation> findByStatusAndHoldUntilBefore(Reservation.ReservationStatus status, Date time);
 
-    @Query("{ 'clubId': ?0, 'status': 'ACTIVE', 'start': { $lt: ?2 }, 'end': { $gt: ?1 } }")
-    List<Reservation> findActiveOverlappingAll(String clubId, Date start, Date end);
+    // Оплаченные, но не активированные брони, чей возврат ещё не прошёл
+    List<Reservation> findByRefundStatus(Reservation.RefundStatus refundStatus);
 
     // Для очистки старых броней
     List<Reservation> findByEndBefore(Date time);
+
+    // Начальная сборка журнала броней (ReservationJournal), когда снимка ещё нет
+    Stream<Reservation> findByEndAfter(Date time);
 }
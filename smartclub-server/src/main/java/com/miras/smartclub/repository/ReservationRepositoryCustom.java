@@ -0,0 +1,72 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.ReservationTransition;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public interface ReservationRepositoryCustom {
+
+    /**
+     * Атомарный переход статуса одним findAndModify: срабатывает только если текущий статус входит в {@code from}
+     * (и, если задан {@code ownerUserId}, бронь принадлежит этому пользователю). Ставит {@code to} и {@code fields}
+     * через $set, увеличивает version. Возвращает новый документ вместе с прежним статусом.
+     * Empty — guard не прошёл или брони нет.
+     */
+    Optional<ReservationTransition> transition(String reservationId, String ownerUserId,
+                                               Collection<Reservation.ReservationStatus> from,
+                                               Reservation.ReservationStatus to,
+                                               Map<String, Object> fields);
+
+    /**
+     * Оптимистичная запись: $set {@code fields} только если version совпадает с {@code expectedVersion}
+     * (null — документ ещё ни разу не версионировался). Empty — кто-то успел изменить бронь раньше.
+     */
+    Optional<Reservation> updateIfVersion(String reservationId, Long expectedVersion, Map<String, Object> fields);
+
+    /**
+     * Брони, занимающие любое из {@code seatIds} в окне [start, end): ACTIVE, неоплаченные брони и холды листа ожидания (PENDING с holdUntil)
+     * и операторские блокировки — последние одной агрегацией через $unionWith, как Reservation со статусом BLOCKED.
+     */
+    List<Reservation> findActiveOverlapping(String clubId, List<String> seatIds, Date start, Date end);
+
+    /**
+     * То же по всем местам клуба.
+     */
+    List<Reservation> findActiveOverlappingAll(String clubId, Date start, Date end);
+
+    /**
+     * Одна агрегация: clubId → множество занятых мест (ACTIVE, неоплаченные брони, холды листа ожидания и блокировки) в окне [start, end).
+     * {@code clubIds} == null — по всем клубам.
+     */
+    Map<String, Set<String>> findOccupiedSeatsByClub(Collection<String> clubIds, Date start, Date end);
+
+    /**
+     * Курсор по ACTIVE броням (clubId == null — по всем клубам), без загрузки всего в память.
+     * Поток нужно закрывать.
+     */
+    Stream<Reservation> streamActive(String clubId);
+
+    /**
+     * Клубы, у которых есть ACTIVE брони.
+     */
+    List<String> findActiveClubIds();
+
+    /**
+     * Курсор для выгрузки: брони клуба (clubId == null — всех клубов) с началом в [from, to),
+     * только поля, нужные бухгалтерии. Поток нужно закрывать.
+     */
+    Stream<Reservation> streamForExport(String clubId, Date from, Date to);
+
+    /**
+     * Занимающие места брони и блокировки клуба по любому из {@code seatIds}, пересекающиеся хотя бы с одним окном из {@code windows}
+     * (берутся только start/end) — один запрос с $or по диапазонам вместо запроса на каждое окно.
+     */
+    List<Reservation> findActiveOverlappingAny(String clubId, Collection<String> seatIds, List<Reservation> windows);
+}
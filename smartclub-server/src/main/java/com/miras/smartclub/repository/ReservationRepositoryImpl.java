@@ -0,0 +1,188 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.ReservationTransition;
+import com.miras.smartclub.model.SeatBlock;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class ReservationRepositoryImpl implements ReservationRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+    private final CompactReservationSchema compactSchema;
+
+    @Override
+    public Optional<ReservationTransition> transition(String reservationId, String ownerUserId,
+                                                      Collection<Reservation.ReservationStatus> from,
+                                                      Reservation.ReservationStatus to,
+                                                      Map<String, Object> fields) {
+        Criteria criteria = Criteria.where("_id").is(reservationId).and("status").in(from);
+        if (ownerUserId != null) criteria = criteria.and("userId").is(ownerUserId);
+
+        Update update = new Update().set("status", to).inc("version", 1);
+        if (fields != null) fields.forEach(update::set);
+
+        // берём документ ДО записи, чтобы знать исходный статус; новое состояние детерминировано — достраиваем его сами
+        Reservation doc = mongoTemplate.findAndModify(
+                Query.query(criteria), update, FindAndModifyOptions.options().returnNew(false), Reservation.class);
+        if (doc == null) return Optional.empty();
+
+        return Optional.of(ReservationQueries.applied(doc, to, fields));
+    }
+
+    @Override
+    public Optional<Reservation> updateIfVersion(String reservationId, Long expectedVersion, Map<String, Object> fields) {
+        Criteria criteria = Criteria.where("_id").is(reservationId);
+        criteria = expectedVersion == null
+                ? criteria.and("version").exists(false)
+                : criteria.and("version").is(expectedVersion);
+
+        Update update = new Update().inc("version", 1);
+        if (fields != null) fields.forEach(update::set);
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(criteria), update, FindAndModifyOptions.options().returnNew(true), Reservation.class));
+    }
+
+    @Override
+    public List<Reservation> findActiveOverlapping(String clubId, List<String> seatIds, Date start, Date end) {
+        if (seatIds == null || seatIds.isEmpty()) return new ArrayList<>();
+        byte[] mask = compactSchema.queryMask(clubId, seatIds);
+        if (mask != null) return compactOverlapping(clubId, mask, seatIds, List.of(window(start, end)));
+        return withBlocks(Criteria.where("clubId").is(clubId)
+                .and("seatIds").in(seatIds)
+                .and("start").lt(end)
+                .and("end").gt(start));
+    }
+
+    @Override
+    public List<Reservation> findActiveOverlappingAll(String clubId, Date start, Date end) {
+        if (compactSchema.isReadable(clubId)) return compactOverlapping(clubId, null, null, List.of(window(start, end)));
+        return withBlocks(Criteria.where("clubId").is(clubId)
+                .and("start").lt(end)
+                .and("end").gt(start));
+    }
+
+    @Override
+    public Map<String, Set<String>> findOccupiedSeatsByClub(Collection<String> clubIds, Date start, Date end) {
+        Criteria scope = Criteria.where("start").lt(end).and("end").gt(start);
+        if (clubIds != null) scope = scope.and("clubId").in(clubIds);
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(new Criteria().andOperator(scope, ReservationQueries.blocking())),
+                UnionWithOperation.unionWith(SeatBlock.COLLECTION).pipeline(Aggregation.match(scope)),
+                Aggregation.project("clubId", "seatIds"),
+                Aggregation.unwind("seatIds"),
+                Aggregation.group("clubId").addToSet("seatIds").as("seats")
+        );
+
+        Map<String, Set<String>> result = new HashMap<>();
+        for (Document d : mongoTemplate.aggregate(aggregation, Reservation.class, Document.class)) {
+            List<String> seats = d.getList("seats", String.class);
+            result.put(d.getString("_id"), seats == null ? new HashSet<>() : new HashSet<>(seats));
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<Reservation> streamActive(String clubId) {
+        Criteria criteria = Criteria.where("status").is(Reservation.ReservationStatus.ACTIVE);
+        if (clubId != null) criteria = criteria.and("clubId").is(clubId);
+        return mongoTemplate.stream(Query.query(criteria), Reservation.class);
+    }
+
+    @Override
+    public List<String> findActiveClubIds() {
+        Query query = Query.query(Criteria.where("status").is(Reservation.ReservationStatus.ACTIVE));
+        return mongoTemplate.findDistinct(query, "clubId", Reservation.class, String.class);
+    }
+
+    @Override
+    public Stream<Reservation> streamForExport(String clubId, Date from, Date to) {
+        Criteria criteria = clubId != null ? Criteria.where("clubId").is(clubId) : new Criteria();
+        criteria = criteria.and("start").gte(from).lt(to);
+        Query query = Query.query(criteria).cursorBatchSize(500);
+        query.fields().include("clubId", "userId", "seatIds", "start", "end", "status", "packageId",
+                "totalPrice", "paymentIntentId", "createdAt", "cancelledAt");
+        return mongoTemplate.stream(query, Reservation.class);
+    }
+
+    @Override
+    public List<Reservation> findActiveOverlappingAny(String clubId, Collection<String> seatIds, List<Reservation> windows) {
+        if (seatIds == null || seatIds.isEmpty() || windows == null || windows.isEmpty()) return new ArrayList<>();
+        byte[] mask = compactSchema.queryMask(clubId, seatIds);
+        if (mask != null) return compactOverlapping(clubId, mask, seatIds, windows);
+
+        Criteria[] ranges = windows.stream()
+                .map(w -> Criteria.where("start").lt(w.getEnd()).and("end").gt(w.getStart()))
+                .toArray(Criteria[]::new);
+        return withBlocks(Criteria.where("clubId").is(clubId)
+                .and("seatIds").in(seatIds)
+                .orOperator(ranges));
+    }
+
+    /**
+     * Overlap по компактным полям: кандидаты — по индексу club_overlap (минуты округлены наружу, места — $bitsAnySet),
+     * точное пересечение по start/end проверяется уже в памяти. Блокировки мест — прежним условием по seatIds.
+     * {@code mask} и {@code seatIds} == null — по любым местам. У bits().anySet нет перегрузки для byte[]:
+     * маска уходит base64-строкой, Spring Data превращает её в BinData для $bitsAnySet.
+     */
+    private List<Reservation> compactOverlapping(String clubId, byte[] mask, Collection<String> seatIds, List<Reservation> windows) {
+        Criteria reservations = Criteria.where("clubId").is(clubId);
+        if (mask != null) reservations = reservations.and("seatMask").bits().anySet(Base64.getEncoder().encodeToString(mask));
+        reservations = reservations.orOperator(windows.stream()
+                .map(w -> Criteria.where("endMinute").gt(CompactReservationSchema.floorMinute(w.getStart()))
+                        .and("startMinute").lt(CompactReservationSchema.ceilMinute(w.getEnd())))
+                .toArray(Criteria[]::new));
+
+        Criteria blocks = Criteria.where("clubId").is(clubId);
+        if (seatIds != null) blocks = blocks.and("seatIds").in(seatIds);
+        blocks = blocks.orOperator(windows.stream()
+                .map(w -> Criteria.where("start").lt(w.getEnd()).and("end").gt(w.getStart()))
+                .toArray(Criteria[]::new));
+
+        List<Reservation> result = new ArrayList<>();
+        for (Reservation r : mongoTemplate.aggregate(ReservationQueries.withBlocks(reservations, blocks), Reservation.class, Reservation.class)) {
+            if (r.getStatus() == Reservation.ReservationStatus.BLOCKED || overlapsAny(r, windows)) result.add(r);
+        }
+        return result;
+    }
+
+    private static boolean overlapsAny(Reservation r, List<Reservation> windows) {
+        for (Reservation w : windows) {
+            if (r.getStart().before(w.getEnd()) && r.getEnd().after(w.getStart())) return true;
+        }
+        return false;
+    }
+
+    private static Reservation window(Date start, Date end) {
+        Reservation w = new Reservation();
+        w.setStart(start);
+        w.setEnd(end);
+        return w;
+    }
+
+    private List<Reservation> withBlocks(Criteria scope) {
+        return mongoTemplate.aggregate(ReservationQueries.withBlocks(scope), Reservation.class, Reservation.class).getMappedResults();
+    }
+}
@@ -0,0 +1,15 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.ReservationSnapshotChunk;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReservationSnapshotRepository extends MongoRepository<ReservationSnapshotChunk, String> {
+    Optional<ReservationSnapshotChunk> findFirstByLastTrueOrderBySeqDesc();
+    List<ReservationSnapshotChunk> findBySeqOrderByPartAsc(long seq);
+    void deleteBySeqLessThan(long seq);
+}
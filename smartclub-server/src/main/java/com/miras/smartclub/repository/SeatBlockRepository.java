@@ -0,0 +1,16 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.SeatBlock;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface SeatBlockRepository extends MongoRepository<SeatBlock, String> {
+
+    @Query(value = "{ 'clubId': ?0, 'start': { $lt: ?2 }, 'end': { $gt: ?1 } }", sort = "{ 'start': 1 }")
+    List<SeatBlock> findOverlapping(String clubId, Date from, Date to);
+}
@@ -4,10 +4,12 @@ import com.miras.smartclub.model.Seat;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface SeatRepository extends MongoRepository<Seat, String> {
+public interface SeatRepository extends MongoRepository<Seat, String>, SeatRepositoryCustom {
     List<Seat> findByClubIdOrderByOrderAsc(String clubId);
     long countByClubId(String clubId);
+    List<Seat> findByClubIdIn(Collection<String> clubIds);
 }
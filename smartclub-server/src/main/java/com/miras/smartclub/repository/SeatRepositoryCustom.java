@@ -0,0 +1,14 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.Seat;
+
+import java.util.List;
+
+public interface SeatRepositoryCustom {
+
+    /**
+     * Upsert мест одной unordered bulk-операцией: по _id, если он задан, иначе по (clubId, label) —
+     * повторный импорт той же схемы зала не плодит дубли.
+     */
+    void bulkUpsert(List<Seat> seats);
+}
@@ -0,0 +1,35 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.Seat;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class SeatRepositoryImpl implements SeatRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void bulkUpsert(List<Seat> seats) {
+        if (seats.isEmpty()) return;
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Seat.class);
+        for (Seat s : seats) {
+            Criteria key = s.getId() != null
+                    ? Criteria.where("_id").is(s.getId())
+                    : Criteria.where("clubId").is(s.getClubId()).and("label").is(s.getLabel());
+            Update update = new Update()
+                    .set("clubId", s.getClubId())
+                    .set("label", s.getLabel())
+                    .set("isVip", s.isVip())
+                    .set("order", s.getOrder());
+            bulk.upsert(Query.query(key), update);
+        }
+        bulk.execute();
+    }
+}
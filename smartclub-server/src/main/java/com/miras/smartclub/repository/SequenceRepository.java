@@ -0,0 +1,50 @@
+package com.miras.smartclub.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Именованные монотонные счётчики в коллекции sequences ({_id: name, value: n}).
+ */
+@Repository
+@RequiredArgsConstructor
+public class SequenceRepository {
+
+    private static final String COLLECTION = "sequences";
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Следующее значение счётчика (первое — 1). Атомарно между узлами: findAndModify + $inc с upsert.
+     */
+    public long next(String name) {
+        return nextBlock(name, 1);
+    }
+
+    /**
+     * Зарезервировать {@code size} значений подряд; возвращает последнее из них.
+     */
+    public long nextBlock(String name, int size) {
+        Document doc = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(name)),
+                new Update().inc("value", size),
+                FindAndModifyOptions.options().returnNew(true).upsert(true),
+                Document.class,
+                COLLECTION);
+        return ((Number) doc.get("value")).longValue();
+    }
+
+    /**
+     * Текущее значение счётчика без изменения (0 — счётчик ещё не создан).
+     */
+    public long current(String name) {
+        Document doc = mongoTemplate.findOne(Query.query(Criteria.where("_id").is(name)), Document.class, COLLECTION);
+        return doc == null ? 0 : ((Number) doc.get("value")).longValue();
+    }
+}
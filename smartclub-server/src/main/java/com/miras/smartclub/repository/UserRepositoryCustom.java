@@ -0,0 +1,15 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.User;
+
+import java.util.Map;
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Точечный $set указанных полей одним findAndModify. Возвращает обновлённый документ
+     * или empty, если пользователь не найден. Дубликат телефона приходит как DuplicateKeyException.
+     */
+    Optional<User> updateFields(String userId, Map<String, Object> fields);
+}
@@ -0,0 +1,33 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Map;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<User> updateFields(String userId, Map<String, Object> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return Optional.ofNullable(mongoTemplate.findById(userId, User.class));
+        }
+        Update update = new Update();
+        fields.forEach(update::set);
+        User updated = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(userId)),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                User.class);
+        return Optional.ofNullable(updated);
+    }
+}
@@ -0,0 +1,17 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.WaitlistEntry;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WaitlistRepository extends MongoRepository<WaitlistEntry, String>, WaitlistRepositoryCustom {
+    List<WaitlistEntry> findByStatus(WaitlistEntry.Status status);
+    List<WaitlistEntry> findByUserIdOrderByCreatedAtDesc(String userId);
+    List<WaitlistEntry> findByStatusAndEndBefore(WaitlistEntry.Status status, Date time);
+    Optional<WaitlistEntry> findByHoldReservationId(String holdReservationId);
+}
@@ -0,0 +1,17 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.WaitlistEntry;
+
+import java.util.Map;
+import java.util.Optional;
+
+public interface WaitlistRepositoryCustom {
+
+    /**
+     * Атомарный переход статуса: срабатывает, только если текущий статус равен {@code from}
+     * (и, если задан {@code userId}, запись принадлежит ему). Возвращает новый документ; empty — guard не прошёл.
+     * Так два узла не выдадут холд по одной записи.
+     */
+    Optional<WaitlistEntry> transition(String entryId, String userId, WaitlistEntry.Status from,
+                                       WaitlistEntry.Status to, Map<String, Object> fields);
+}
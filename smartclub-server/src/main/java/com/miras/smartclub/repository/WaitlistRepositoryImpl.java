@@ -0,0 +1,31 @@
+package com.miras.smartclub.repository;
+
+import com.miras.smartclub.model.WaitlistEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Map;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class WaitlistRepositoryImpl implements WaitlistRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<WaitlistEntry> transition(String entryId, String userId, WaitlistEntry.Status from,
+                                              WaitlistEntry.Status to, Map<String, Object> fields) {
+        Criteria criteria = Criteria.where("_id").is(entryId).and("status").is(from);
+        if (userId != null) criteria = criteria.and("userId").is(userId);
+
+        Update update = new Update().set("status", to);
+        if (fields != null) fields.forEach(update::set);
+
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                Query.query(criteria), update, FindAndModifyOptions.options().returnNew(true), WaitlistEntry.class));
+    }
+}
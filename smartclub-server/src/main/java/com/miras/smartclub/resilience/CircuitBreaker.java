@@ -0,0 +1,77 @@
+package com.miras.smartclub.resilience;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Предохранитель: после {@code failureThreshold} сбоев подряд цепь размыкается, и вызовы сразу получают отказ.
+ * Через {@code openMs} пропускается один пробный вызов (half-open): успех замыкает цепь, сбой — снова размыкает.
+ * Пока проба идёт, остальные вызовы по-прежнему получают отказ. В закрытом состоянии — одно volatile-чтение на вызов.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMs;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMs) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMs = openMs;
+    }
+
+    /**
+     * true — вызов можно выполнять (в half-open это и есть проба); false — цепь разомкнута.
+     */
+    public boolean tryAcquire() {
+        State s = state.get();
+        if (s == State.CLOSED) return true;
+        if (s == State.OPEN && System.currentTimeMillis() - openedAt >= openMs
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            System.out.println("[BREAKER] " + name + " half-open: probing");
+            return true;
+        }
+        return false;
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.get() != State.CLOSED && state.getAndSet(State.CLOSED) != State.CLOSED) {
+            System.out.println("[BREAKER] " + name + " closed");
+        }
+    }
+
+    public void onFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        State s = state.get();
+        if (s == State.HALF_OPEN || (s == State.CLOSED && failures >= failureThreshold)) {
+            // время — до смены состояния: иначе tryAcquire может увидеть OPEN со старым openedAt
+            openedAt = System.currentTimeMillis();
+            if (state.compareAndSet(s, State.OPEN)) {
+                System.err.println("[BREAKER] " + name + " open after " + failures + " failure(s), retry in " + openMs + " ms");
+            }
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("name", name);
+        m.put("state", state.get());
+        m.put("consecutiveFailures", consecutiveFailures.get());
+        m.put("openedAt", openedAt == 0 ? null : new Date(openedAt));
+        return m;
+    }
+}
@@ -0,0 +1,102 @@
+package com.miras.smartclub.resilience;
+
+import com.miras.smartclub.exception.ServiceUnavailableException;
+import com.miras.smartclub.repository.IdempotencyRecordRepository;
+import com.miras.smartclub.repository.ReservationRepository;
+import com.miras.smartclub.repository.SeatRepository;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+/**
+ * Предохранитель вокруг ReservationRepository, SeatRepository и IdempotencyRecordRepository (smartclub.mongo-breaker.*):
+ * /booking/reserve и /payment/create-intent с Idempotency-Key начинают со вставки ключа — без предохранителя
+ * она ждала бы таймаут выбора сервера.
+ * Бины репозиториев оборачиваются JDK-прокси: каждый вызов проходит через общий {@link CircuitBreaker}.
+ * Сбоем считаются только отказы инфраструктуры (таймаут выбора сервера, сокет, недоступность ресурса);
+ * бизнес-ошибки вроде дубликата ключа означают, что база ответила, и цепь не размыкают.
+ * При разомкнутой цепи вызов сразу бросает {@link ServiceUnavailableException} (503) — запись падает быстро,
+ * а доступность мест отдаётся из последнего удачного снимка ({@code AvailabilityCache}).
+ * Реактивный путь (ReactiveMongoTemplate) через прокси не идёт: он сверяется с {@link #isOpen()} до запроса.
+ */
+@Component
+public class RepositoryCircuitBreaker implements BeanPostProcessor {
+
+    private final boolean enabled;
+    private final CircuitBreaker breaker;
+
+    public RepositoryCircuitBreaker(@Value("${smartclub.mongo-breaker.enabled:true}") boolean enabled,
+                                    @Value("${smartclub.mongo-breaker.failure-threshold:5}") int failureThreshold,
+                                    @Value("${smartclub.mongo-breaker.open-ms:10000}") long openMs) {
+        this.enabled = enabled;
+        this.breaker = new CircuitBreaker("mongo", failureThreshold, openMs);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !(bean instanceof ReservationRepository
+                || bean instanceof SeatRepository
+                || bean instanceof IdempotencyRecordRepository)) return bean;
+        return Proxy.newProxyInstance(bean.getClass().getClassLoader(), bean.getClass().getInterfaces(),
+                (proxy, method, args) -> invoke(bean, method, args));
+    }
+
+    private Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) return method.invoke(target, args);
+        if (!breaker.tryAcquire()) {
+            throw new ServiceUnavailableException("Database temporarily unavailable");
+        }
+        try {
+            Object result = method.invoke(target, args);
+            breaker.onSuccess();
+            return result;
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (isOutage(cause)) breaker.onFailure();
+            else breaker.onSuccess();
+            throw cause;
+        }
+    }
+
+    /**
+     * Отказ инфраструктуры — повод разомкнуть цепь (и отдать устаревший снимок вместо ошибки).
+     */
+    public static boolean isOutage(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ServiceUnavailableException
+                    || t instanceof DataAccessResourceFailureException
+                    || t instanceof TransientDataAccessException
+                    || t instanceof MongoTimeoutException
+                    || t instanceof MongoSocketException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Цепь не замкнута: вызов без пробы (пробу делают блокирующие вызовы через прокси) сразу считаем отказом.
+     */
+    public boolean isOpen() {
+        return enabled && breaker.getState() != CircuitBreaker.State.CLOSED;
+    }
+
+    public CircuitBreaker.State getState() {
+        return breaker.getState();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = breaker.stats();
+        m.put("enabled", enabled);
+        return m;
+    }
+}
@@ -0,0 +1,230 @@
+package com.miras.smartclub.service;
+
+import com.miras.smartclub.changefeed.ChangeFeed;
+import com.miras.smartclub.model.ChangeEvent;
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.Seat;
+import com.miras.smartclub.resilience.RepositoryCircuitBreaker;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-flight и микрокеш для {@link ReservationService#getAvailability}: одинаковые запросы (clubId, start, end),
+ * пришедшие одновременно, ждут одно вычисление, а готовый результат живёт {@code ttlMs} (по умолчанию 500 мс).
+ * Любая запись по клубу (бронь, места, блокировка — через ленту изменений) сбрасывает все окна клуба,
+ * так что после своей брони пользователь не увидит старую картину. Число запросов в Mongo растёт
+ * с числом разных окон, а не пользователей.
+ * <p>
+ * Результат общий для всех ожидающих — вызывающие не должны его менять.
+ * <p>
+ * Кроме того, на клуб хранится последний удачный результат по недавним окнам (last-known-good).
+ * Если Mongo недоступна (таймаут, разомкнутый предохранитель {@link RepositoryCircuitBreaker}), окно отдаётся
+ * из этого снимка с пометками {@code stale: true}, {@code ageMs} и {@code asOf} вместо ошибки.
+ * Лента изменений снимки не сбрасывает: устаревший ответ всегда помечен.
+ * Окно без снимка в такой момент считается по представлению журнала броней ({@link ReservationJournal#occupying},
+ * если журнал включён и прогрет) и местам из кеша {@link SeatService}, с той же пометкой и {@code source: journal}.
+ */
+@Service
+public class AvailabilityCache {
+
+    // сколько окон держать на клуб, прежде чем вычищать просроченные
+    private static final int SWEEP_THRESHOLD = 256;
+    // сколько последних окон на клуб помнить для деградированного режима
+    private static final int SNAPSHOTS_PER_CLUB = 64;
+
+    private final ReservationService reservationService;
+    private final ReservationJournal reservationJournal;
+    private final SeatService seatService;
+    private final ChangeFeed changeFeed;
+    private final long ttlMs;
+
+    private final Map<String, Map<String, Entry>> byClub = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Snapshot>> lastGood = new ConcurrentHashMap<>();
+
+    public AvailabilityCache(ReservationService reservationService,
+                             ReservationJournal reservationJournal,
+                             SeatService seatService,
+                             ChangeFeed changeFeed,
+                             @Value("${smartclub.availability.cache-ms:500}") long ttlMs) {
+        this.reservationService = reservationService;
+        this.reservationJournal = reservationJournal;
+        this.seatService = seatService;
+        this.changeFeed = changeFeed;
+        this.ttlMs = ttlMs;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        changeFeed.subscribe(e -> {
+            if (e.getClubId() == null) return;
+            if (e.getEntity() == ChangeEvent.Entity.RESERVATION
+                    || e.getEntity() == ChangeEvent.Entity.SEAT
+                    || e.getEntity() == ChangeEvent.Entity.SEAT_BLOCK) {
+                invalidate(e.getClubId());
+            }
+        });
+    }
+
+    public Map<String, Object> getAvailability(String clubId, Date start, Date end) {
+        String window = start.getTime() + ":" + end.getTime();
+        try {
+            return fresh(clubId, window, start, end);
+        } catch (RuntimeException e) {
+            if (!RepositoryCircuitBreaker.isOutage(e)) throw e;
+            Map<String, Object> stale = degraded(clubId, window, start, end);
+            if (stale == null) throw e;
+            return stale;
+        }
+    }
+
+    /**
+     * То же для реактивного пути (/r/booking/availability) без блокировки потока: окно из кеша или уже идущее
+     * вычисление (любого пути) ждётся через future, иначе считается {@code query} и результат кладётся в кеш.
+     * При отказе Mongo — тот же устаревший ответ, что у блокирующего пути; он собирается на boundedElastic,
+     * потому что места клуба могут дочитываться блокирующим репозиторием.
+     */
+    public Mono<Map<String, Object>> getAvailability(String clubId, Date start, Date end, Mono<Map<String, Object>> query) {
+        String window = start.getTime() + ":" + end.getTime();
+        return Mono.defer(() -> {
+            Map<String, Entry> windows = byClub.computeIfAbsent(clubId, k -> new ConcurrentHashMap<>());
+            long now = System.currentTimeMillis();
+
+            Entry mine = new Entry();
+            Entry entry = windows.compute(window, (k, old) -> old != null && old.usableAt(now, ttlMs) ? old : mine);
+            // чужое вычисление не отменяем, если наш подписчик ушёл
+            if (entry != mine) return Mono.fromFuture(entry.result, true);
+
+            return query
+                    .doOnNext(view -> {
+                        remember(clubId, window, view);
+                        mine.result.complete(view);
+                    })
+                    .doFinally(signal -> {
+                        mine.completedAt = System.currentTimeMillis();
+                        if (!mine.result.isDone()) {
+                            // ошибка, отмена или пустой ответ: ждущие получат ошибку, окно посчитается заново
+                            windows.remove(window, mine);
+                            mine.result.completeExceptionally(new IllegalStateException("availability query did not complete"));
+                        }
+                        sweep(windows);
+                    });
+        }).onErrorResume(RepositoryCircuitBreaker::isOutage, e ->
+                Mono.fromCallable(() -> degraded(clubId, window, start, end))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .switchIfEmpty(Mono.error(e)));
+    }
+
+    private Map<String, Object> degraded(String clubId, String window, Date start, Date end) {
+        Map<String, Object> stale = stale(clubId, window);
+        return stale != null ? stale : fromJournal(clubId, start, end);
+    }
+
+    private void sweep(Map<String, Entry> windows) {
+        if (windows.size() > SWEEP_THRESHOLD) {
+            long t = System.currentTimeMillis();
+            windows.values().removeIf(x -> !x.usableAt(t, ttlMs));
+        }
+    }
+
+    private Map<String, Object> fresh(String clubId, String window, Date start, Date end) {
+        Map<String, Entry> windows = byClub.computeIfAbsent(clubId, k -> new ConcurrentHashMap<>());
+        long now = System.currentTimeMillis();
+
+        Entry mine = new Entry();
+        Entry entry = windows.compute(window, (k, old) -> old != null && old.usableAt(now, ttlMs) ? old : mine);
+        if (entry == mine) {
+            // вставка записи идёт до запроса в Mongo: invalidate, случившийся во время запроса, её удалит
+            try {
+                Map<String, Object> view = reservationService.getAvailability(clubId, start, end);
+                remember(clubId, window, view);
+                mine.result.complete(view);
+            } catch (RuntimeException e) {
+                windows.remove(window, mine);
+                mine.result.completeExceptionally(e);
+                throw e;
+            } finally {
+                mine.completedAt = System.currentTimeMillis();
+            }
+            sweep(windows);
+        }
+
+        try {
+            return entry.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private void remember(String clubId, String window, Map<String, Object> view) {
+        lastGood.computeIfAbsent(clubId, k -> Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+                return size() > SNAPSHOTS_PER_CLUB;
+            }
+        })).put(window, new Snapshot(view, System.currentTimeMillis()));
+    }
+
+    private Map<String, Object> stale(String clubId, String window) {
+        Map<String, Snapshot> snapshots = lastGood.get(clubId);
+        Snapshot snapshot = snapshots == null ? null : snapshots.get(window);
+        if (snapshot == null) return null;
+
+        Map<String, Object> view = new HashMap<>(snapshot.view());
+        view.put("stale", true);
+        view.put("ageMs", System.currentTimeMillis() - snapshot.at());
+        view.put("asOf", new Date(snapshot.at()));
+        return view;
+    }
+
+    private Map<String, Object> fromJournal(String clubId, Date start, Date end) {
+        List<Reservation> occupying = reservationJournal.occupying(clubId, start, end);
+        if (occupying == null) return null;
+        List<Seat> seats;
+        try {
+            seats = seatService.getCachedSeats(clubId);
+        } catch (RuntimeException e) {
+            // мест клуба нет в кеше, а Mongo недоступна
+            return null;
+        }
+        long asOf = reservationJournal.caughtUpAt();
+        Map<String, Object> view = ReservationService.availabilityView(seats, occupying, start, end);
+        view.put("stale", true);
+        view.put("source", "journal");
+        view.put("ageMs", System.currentTimeMillis() - asOf);
+        view.put("asOf", new Date(asOf));
+        return view;
+    }
+
+    public void invalidate(String clubId) {
+        Map<String, Entry> windows = byClub.get(clubId);
+        if (windows != null) windows.clear();
+    }
+
+    private record Snapshot(Map<String, Object> view, long at) {
+    }
+
+    private static final class Entry {
+        final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        volatile long completedAt; // 0 — ещё считается
+
+        boolean usableAt(long now, long ttlMs) {
+            // ещё считается — присоединяемся; посчитано — пока не истёк ttl
+            long done = completedAt;
+            return done == 0 || now - done < ttlMs;
+        }
+    }
+}
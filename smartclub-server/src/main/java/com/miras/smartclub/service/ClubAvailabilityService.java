@@ -0,0 +1,86 @@
+package com.miras.smartclub.service;
+
+import com.miras.smartclub.model.Club;
+import com.miras.smartclub.model.Seat;
+import com.miras.smartclub.repository.ReservationRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Свободные места сразу по многим клубам на одно окно (главная страница).
+ */
+@Service
+public class ClubAvailabilityService {
+
+    // клубов на одну агрегацию; шарды идут параллельно
+    private static final int SHARD_SIZE = 50;
+
+    private final ReservationRepository reservationRepository;
+    private final SeatService seatService;
+    private final ClubService clubService;
+    private final ExecutorService queryExecutor;
+
+    public ClubAvailabilityService(ReservationRepository reservationRepository,
+                                   SeatService seatService,
+                                   ClubService clubService,
+                                   @Qualifier("queryExecutor") ExecutorService queryExecutor) {
+        this.reservationRepository = reservationRepository;
+        this.seatService = seatService;
+        this.clubService = clubService;
+        this.queryExecutor = queryExecutor;
+    }
+
+    /**
+     * По каждому клубу: totalSeats, vipSeats, availableCount, availableVipCount в окне [start, end).
+     * {@code clubIds} == null — все клубы каталога.
+     */
+    public List<Map<String, Object>> getAvailabilityForClubs(Collection<String> clubIds, Date start, Date end) {
+        Map<String, Club> clubs = new LinkedHashMap<>();
+        if (clubIds == null) {
+            for (Club c : clubService.cachedClubs()) clubs.put(c.getId(), c);
+        } else {
+            for (String id : new LinkedHashSet<>(clubIds)) clubs.put(id, clubService.findCached(id));
+        }
+        if (clubs.isEmpty()) return Collections.emptyList();
+
+        List<String> ids = new ArrayList<>(clubs.keySet());
+        Map<String, List<Seat>> seats = seatService.getCachedSeats(ids);
+
+        List<CompletableFuture<Map<String, Set<String>>>> shards = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += SHARD_SIZE) {
+            List<String> shard = ids.subList(i, Math.min(ids.size(), i + SHARD_SIZE));
+            shards.add(CompletableFuture.supplyAsync(
+                    () -> reservationRepository.findOccupiedSeatsByClub(shard, start, end), queryExecutor));
+        }
+        Map<String, Set<String>> occupied = new HashMap<>();
+        for (CompletableFuture<Map<String, Set<String>>> f : shards) occupied.putAll(f.join());
+
+        List<Map<String, Object>> result = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            List<Seat> clubSeats = seats.getOrDefault(id, Collections.emptyList());
+            Set<String> busy = occupied.getOrDefault(id, Collections.emptySet());
+            long vip = 0, available = 0, availableVip = 0;
+            for (Seat s : clubSeats) {
+                boolean free = !busy.contains(s.getId());
+                if (s.isVip()) vip++;
+                if (free) available++;
+                if (free && s.isVip()) availableVip++;
+            }
+
+            Map<String, Object> m = new HashMap<>();
+            Club c = clubs.get(id);
+            m.put("clubId", id);
+            m.put("name", c == null ? null : c.getName());
+            m.put("totalSeats", clubSeats.size());
+            m.put("vipSeats", vip);
+            m.put("availableCount", available);
+            m.put("availableVipCount", availableVip);
+            result.add(m);
+        }
+        return result;
+    }
+}
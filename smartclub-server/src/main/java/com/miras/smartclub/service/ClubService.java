@@ -1,19 +1,171 @@
 package com.miras.smartclub.service;
 
+import com.miras.smartclub.changefeed.ChangeFeed;
+import com.miras.smartclub.index.ClubSearchIndex;
+import com.miras.smartclub.index.GeoGridIndex;
+import com.miras.smartclub.model.ChangeEvent;
 import com.miras.smartclub.model.Club;
 import com.miras.smartclub.repository.ClubRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class ClubService {
+    // ~5.5 км по широте: на радиусах в пару десятков км обходим десятки ячеек
+    private static final double GEO_CELL_DEG = 0.05;
+
     private final ClubRepository repo;
+    private final ChangeFeed changeFeed;
+
+    private volatile GeoGridIndex geoIndex = GeoGridIndex.empty();
+    private volatile boolean geoIndexReady = false;
+    private final ClubSearchIndex searchIndex = new ClubSearchIndex();
 
     public List<Club> findAll() { return repo.findAll(); }
     public Club findById(String id) { return repo.findById(id).orElse(null); }
-    public List<Club> saveAll(List<Club> clubs) { return repo.saveAll(clubs); }
     public boolean existsAny() { return repo.count() > 0; }
+
+    public List<Club> saveAll(List<Club> clubs) {
+        clubs.forEach(ClubService::syncPosition);
+        List<Club> saved = repo.saveAll(clubs);
+        saved.forEach(searchIndex::put);
+        rebuildGeoIndex();
+        saved.forEach(c -> changeFeed.publish(new ChangeEvent(ChangeEvent.Entity.CLUB, c.getId(), c.getId(), "UPSERT")));
+        return saved;
+    }
+
+    public Club save(Club club) {
+        syncPosition(club);
+        Club saved = repo.save(club);
+        searchIndex.put(saved);
+        rebuildGeoIndex();
+        changeFeed.publish(new ChangeEvent(ChangeEvent.Entity.CLUB, saved.getId(), saved.getId(), "UPSERT"));
+        return saved;
+    }
+
+    /**
+     * Ближайшие клубы: из in-memory сетки, а пока она не построена — через $geoNear в Mongo.
+     */
+    public List<GeoGridIndex.Hit> findNearby(double lat, double lng, double radiusKm, int limit) {
+        if (geoIndexReady) {
+            return geoIndex.nearest(lat, lng, radiusKm, limit);
+        }
+        List<GeoGridIndex.Hit> hits = new ArrayList<>();
+        for (GeoResult<Club> r : repo.findNear(lat, lng, radiusKm, limit)) {
+            hits.add(new GeoGridIndex.Hit(r.getContent(), r.getDistance().getValue()));
+        }
+        return hits;
+    }
+
+    /**
+     * Каталог из памяти (после warmUp); до прогрева — из Mongo.
+     */
+    public Collection<Club> cachedClubs() {
+        return geoIndexReady ? searchIndex.clubs() : repo.findAll();
+    }
+
+    public Club findCached(String id) {
+        Club c = geoIndexReady ? searchIndex.get(id) : null;
+        return c != null ? c : findById(id);
+    }
+
+    /**
+     * Клубы по id из памяти; промахи (или всё, пока каталог не прогрет) — одним запросом. Ненайденных в ответе нет.
+     */
+    public Map<String, Club> findCached(Collection<String> ids) {
+        Map<String, Club> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            Club c = geoIndexReady ? searchIndex.get(id) : null;
+            if (c != null) result.put(id, c);
+            else missing.add(id);
+        }
+        if (!missing.isEmpty()) {
+            for (Club c : repo.findAllById(missing)) result.put(c.getId(), c);
+        }
+        return result;
+    }
+
+    /**
+     * Поиск по названию, локации, адресу и услугам/категориям прайса (префиксы, кириллица и латиница).
+     */
+    public List<ClubSearchIndex.Hit> search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        changeFeed.subscribe(e -> {
+            // свои записи индексы уже учли; чужой узел — перечитываем один клуб
+            if (e.getEntity() == ChangeEvent.Entity.CLUB && !changeFeed.isLocal(e)) refreshClub(e.getEntityId());
+        });
+    }
+
+    private void refreshClub(String clubId) {
+        Club c = repo.findById(clubId).orElse(null);
+        if (c == null) searchIndex.remove(clubId);
+        else searchIndex.put(c);
+        rebuildGeoIndex();
+    }
+
+    /**
+     * Клубы записаны в обход save (bulk-импорт): перечитать их одним запросом, обновить индексы и оповестить ленту.
+     */
+    public void reindex(Collection<String> clubIds) {
+        for (Club c : repo.findAllById(clubIds)) searchIndex.put(c);
+        rebuildGeoIndex();
+        for (String id : clubIds) {
+            changeFeed.publish(new ChangeEvent(ChangeEvent.Entity.CLUB, id, id, "UPSERT"));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        // старые документы без position: дозаполняем, чтобы их видел 2dsphere-индекс
+        List<Club> all = repo.findAll();
+        List<Club> missing = new ArrayList<>();
+        for (Club c : all) {
+            if (c.getPosition() == null && syncPosition(c)) missing.add(c);
+        }
+        if (!missing.isEmpty()) repo.saveAll(missing);
+        rebuildIndexes(all);
+    }
+
+    public void rebuildIndexes() {
+        rebuildIndexes(repo.findAll());
+    }
+
+    private void rebuildIndexes(List<Club> all) {
+        searchIndex.rebuild(all);
+        geoIndex = GeoGridIndex.build(all, GEO_CELL_DEG);
+        geoIndexReady = true;
+    }
+
+    private void rebuildGeoIndex() {
+        // сетка неизменяемая — строим заново из уже проиндексированного каталога, без похода в Mongo;
+        // до warmUp каталог в памяти неполный, и запросы пока обслуживает $geoNear
+        if (!geoIndexReady) return;
+        geoIndex = GeoGridIndex.build(searchIndex.clubs(), GEO_CELL_DEG);
+    }
+
+    static boolean syncPosition(Club c) {
+        if (c.getLatitude() == null || c.getLongitude() == null) {
+            c.setPosition(null);
+            return false;
+        }
+        c.setPosition(new GeoJsonPoint(c.getLongitude(), c.getLatitude()));
+        return true;
+    }
 }
@@ -0,0 +1,65 @@
+package com.miras.smartclub.service;
+
+import com.miras.smartclub.changefeed.ChangeFeed;
+import com.miras.smartclub.model.ChangeEvent;
+import com.miras.smartclub.model.Club;
+import com.miras.smartclub.repository.ClubRepository;
+import com.miras.smartclub.repository.CompactReservationSchema;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Фоновая миграция броней на компактную схему ({@link CompactReservationSchema}): после старта — по всем клубам,
+ * при изменении мест клуба — заново по этому клубу (маски считаются по Seat.order). Пока миграция клуба
+ * не закончена, его overlap-запросы идут прежним путём.
+ */
+@Service
+public class CompactSchemaMigration {
+
+    private final CompactReservationSchema compactSchema;
+    private final ClubRepository clubRepository;
+    private final ChangeFeed changeFeed;
+    private final ExecutorService queryExecutor;
+
+    public CompactSchemaMigration(CompactReservationSchema compactSchema,
+                                  ClubRepository clubRepository,
+                                  ChangeFeed changeFeed,
+                                  @Qualifier("queryExecutor") ExecutorService queryExecutor) {
+        this.compactSchema = compactSchema;
+        this.clubRepository = clubRepository;
+        this.changeFeed = changeFeed;
+        this.queryExecutor = queryExecutor;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (!compactSchema.isWriteEnabled()) return;
+        changeFeed.subscribe(e -> {
+            if (e.getEntity() != ChangeEvent.Entity.SEAT || e.getClubId() == null) return;
+            // снимаем чтение сразу, пересчёт — в фоне
+            compactSchema.invalidate(e.getClubId());
+            queryExecutor.execute(() -> migrate(e.getClubId()));
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateAll() {
+        if (!compactSchema.isWriteEnabled()) return;
+        queryExecutor.execute(() -> {
+            for (Club club : clubRepository.findAll()) migrate(club.getId());
+        });
+    }
+
+    private void migrate(String clubId) {
+        try {
+            compactSchema.migrate(clubId);
+        } catch (RuntimeException e) {
+            System.err.println("[COMPACT] migration of club " + clubId + " failed: " + e.getMessage());
+        }
+    }
+}
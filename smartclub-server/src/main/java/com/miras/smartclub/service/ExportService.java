@@ -0,0 +1,100 @@
+package com.miras.smartclub.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.repository.ReservationRepository;
+import com.miras.smartclub.util.CsvUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Выгрузка броней для бухгалтерии прямо из курсора Mongo в выходной поток.
+ * В памяти одновременно живёт только текущая пачка курсора, а медленный клиент тормозит чтение
+ * курсора через блокирующую запись в сокет.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final int FLUSH_EVERY = 500;
+    private static final String[] CSV_HEADER = {
+            "id", "clubId", "userId", "seatIds", "start", "end", "status", "packageId",
+            "totalPrice", "paymentIntentId", "createdAt", "cancelledAt"
+    };
+
+    private final ReservationRepository reservationRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Возвращает число выгруженных строк.
+     */
+    public long writeReservations(String clubId, Date from, Date to, Format format, OutputStream os) throws IOException {
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            out.write(String.join(",", CSV_HEADER));
+            out.write('\n');
+        }
+
+        long rows = 0;
+        try (Stream<Reservation> cursor = reservationRepository.streamForExport(clubId, from, to)) {
+            Iterator<Reservation> it = cursor.iterator();
+            while (it.hasNext()) {
+                Reservation r = it.next();
+                if (format == Format.CSV) writeCsv(out, r);
+                else writeJson(out, r);
+                if (++rows % FLUSH_EVERY == 0) out.flush();
+            }
+        }
+        out.flush();
+        return rows;
+    }
+
+    private void writeCsv(BufferedWriter out, Reservation r) throws IOException {
+        Object[] values = {
+                r.getId(), r.getClubId(), r.getUserId(),
+                r.getSeatIds() == null ? null : String.join(";", r.getSeatIds()),
+                iso(r.getStart()), iso(r.getEnd()), r.getStatus(), r.getPackageId(),
+                r.getTotalPrice(), r.getPaymentIntentId(), iso(r.getCreatedAt()), iso(r.getCancelledAt())
+        };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) out.write(',');
+            out.write(CsvUtils.escape(values[i]));
+        }
+        out.write('\n');
+    }
+
+    private void writeJson(BufferedWriter out, Reservation r) throws IOException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("id", r.getId());
+        row.put("clubId", r.getClubId());
+        row.put("userId", r.getUserId());
+        row.put("seatIds", r.getSeatIds());
+        row.put("start", iso(r.getStart()));
+        row.put("end", iso(r.getEnd()));
+        row.put("status", r.getStatus());
+        row.put("packageId", r.getPackageId());
+        row.put("totalPrice", r.getTotalPrice());
+        row.put("paymentIntentId", r.getPaymentIntentId());
+        row.put("createdAt", iso(r.getCreatedAt()));
+        row.put("cancelledAt", iso(r.getCancelledAt()));
+        out.write(objectMapper.writeValueAsString(row));
+        out.write('\n');
+    }
+
+    private static String iso(Date d) {
+        return d == null ? null : d.toInstant().toString();
+    }
+}
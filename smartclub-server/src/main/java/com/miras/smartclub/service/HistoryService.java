@@ -0,0 +1,72 @@
+package com.miras.smartclub.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miras.smartclub.model.Club;
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.Seat;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * История броней пользователя, уже склеенная с клубами и подписями мест, — вместо запросов клуба
+ * и доступности на каждую бронь с клиента. Запросов фиксированное число: история, плюс промахи кеша
+ * клубов и мест (каждый — одним запросом на всех).
+ */
+@Service
+@RequiredArgsConstructor
+public class HistoryService {
+
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {};
+
+    private final ReservationService reservationService;
+    private final ClubService clubService;
+    private final SeatService seatService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Брони (новые сверху) с полями club {id, name, image, address}, clubName и seatLabels.
+     * Удалённый клуб или место — club == null, подпись = id места.
+     */
+    public List<Map<String, Object>> getEnrichedHistory(String userId) {
+        List<Reservation> history = reservationService.getUserHistory(userId);
+        if (history.isEmpty()) return new ArrayList<>();
+
+        Set<String> clubIds = new HashSet<>();
+        for (Reservation r : history) {
+            if (r.getClubId() != null) clubIds.add(r.getClubId());
+        }
+        Map<String, Club> clubs = clubService.findCached(clubIds);
+
+        Map<String, String> labels = new HashMap<>();
+        for (List<Seat> seats : seatService.getCachedSeats(clubIds).values()) {
+            for (Seat s : seats) labels.put(s.getId(), s.getLabel() != null ? s.getLabel() : s.getId());
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>(history.size());
+        for (Reservation r : history) {
+            Map<String, Object> item = objectMapper.convertValue(r, MAP);
+            Club club = clubs.get(r.getClubId());
+            item.put("club", club == null ? null : summary(club));
+            item.put("clubName", club != null ? club.getName() : r.getClubId());
+            List<String> seatLabels = new ArrayList<>();
+            if (r.getSeatIds() != null) {
+                for (String id : r.getSeatIds()) seatLabels.add(labels.getOrDefault(id, id));
+            }
+            item.put("seatLabels", seatLabels);
+            result.add(item);
+        }
+        return result;
+    }
+
+    private static Map<String, Object> summary(Club c) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("id", c.getId());
+        m.put("name", c.getName());
+        m.put("image", c.getImage());
+        m.put("address", c.getAddress());
+        return m;
+    }
+}
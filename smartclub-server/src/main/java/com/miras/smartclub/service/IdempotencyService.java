@@ -0,0 +1,184 @@
+package com.miras.smartclub.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miras.smartclub.model.IdempotencyRecord;
+import com.miras.smartclub.repository.IdempotencyRecordRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Идемпотентность по заголовку Idempotency-Key: повтор запроса с тем же ключом получает исходный ответ,
+ * а действие (вставка брони, вызов Stripe) выполняется один раз.
+ * <p>
+ * Слои: повторы на этом узле, пока оригинал ещё выполняется, ждут его результата (inFlight);
+ * недавние ответы отдаются из памяти (recent); остальное — через коллекцию idempotency_keys, где ключ
+ * захватывается вставкой с уникальным _id, так что и второй узел не выполнит действие повторно.
+ * Захват арендуется на {@code LEASE_MS}: если узел упал посреди действия, повтор после конца аренды перехватывает
+ * захват условным update и выполняет действие сам, а не получает 409 до истечения TTL записи.
+ * Ответы 5xx не сохраняются: такой запрос можно повторить с тем же ключом.
+ */
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 200;
+    private static final int MAX_CACHED = 10_000;
+    private static final long CACHE_TTL_MS = 10 * 60 * 1000;
+    private static final long WAIT_MS = 30_000;
+    // дольше любого ожидания повтора: живой оригинал аренду не теряет
+    private static final long LEASE_MS = 3 * WAIT_MS;
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, IdempotencyRecord> recent = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+                    return size() > MAX_CACHED;
+                }
+            });
+
+    /**
+     * Выполнить {@code action} не больше одного раза на (scope, userId, key). {@code key} == null — без идемпотентности.
+     * {@code request} хешируется: тот же ключ с другим телом запроса — 422.
+     */
+    public ResponseEntity<?> execute(String scope, String userId, String key, Object request,
+                                     Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) return action.get();
+        if (key.length() > MAX_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body(Map.of("error", HEADER + " too long"));
+        }
+
+        String id = scope + ":" + userId + ":" + key;
+        String hash = hash(request);
+
+        IdempotencyRecord cached = recent.get(id);
+        if (cached != null && System.currentTimeMillis() - cached.getCreatedAt().getTime() < CACHE_TTL_MS) {
+            return replay(cached, hash);
+        }
+
+        CompletableFuture<IdempotencyRecord> mine = new CompletableFuture<>();
+        CompletableFuture<IdempotencyRecord> running = inFlight.putIfAbsent(id, mine);
+        if (running != null) return awaitOriginal(running, hash);
+
+        try {
+            return runOnce(id, hash, action, mine);
+        } finally {
+            inFlight.remove(id, mine);
+            mine.complete(null);
+        }
+    }
+
+    private ResponseEntity<?> runOnce(String id, String hash, Supplier<ResponseEntity<?>> action,
+                                      CompletableFuture<IdempotencyRecord> mine) {
+        IdempotencyRecord claim = new IdempotencyRecord(id, hash);
+        claim.setLockedUntil(new Date(System.currentTimeMillis() + LEASE_MS));
+        try {
+            repository.insert(claim);
+        } catch (DuplicateKeyException e) {
+            // ключ уже видели: ответ сохранён, оригинал выполняется на другом узле или его узел упал
+            IdempotencyRecord stored = repository.findById(id).orElse(null);
+            if (stored == null) return inProgress();
+            if (!Objects.equals(stored.getRequestHash(), hash)) return reused();
+            if (stored.getState() == IdempotencyRecord.State.DONE) {
+                remember(stored);
+                mine.complete(stored);
+                return replay(stored, hash);
+            }
+            if (stored.getLockedUntil() != null && stored.getLockedUntil().after(new Date())) return inProgress();
+
+            Date lease = new Date(System.currentTimeMillis() + LEASE_MS);
+            if (!repository.takeOver(id, stored.getLockedUntil(), lease)) return inProgress();
+            System.out.println("[IDEMPOTENCY] took over expired claim " + id);
+            claim = stored;
+            claim.setLockedUntil(lease);
+        }
+
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            repository.release(id, claim.getLockedUntil());
+            throw e;
+        }
+
+        if (response.getStatusCode().is5xxServerError()) {
+            repository.release(id, claim.getLockedUntil());
+            return response;
+        }
+
+        claim.setState(IdempotencyRecord.State.DONE);
+        claim.setHttpStatus(response.getStatusCode().value());
+        try {
+            claim.setBody(objectMapper.writeValueAsString(response.getBody()));
+            repository.save(claim);
+            remember(claim);
+            mine.complete(claim);
+        } catch (JsonProcessingException | RuntimeException e) {
+            // ответ клиенту важнее: без сохранения повтор просто выполнится заново
+            System.err.println("[IDEMPOTENCY] failed to store response for " + id + ": " + e.getMessage());
+            repository.release(id, claim.getLockedUntil());
+        }
+        return response;
+    }
+
+    private ResponseEntity<?> awaitOriginal(CompletableFuture<IdempotencyRecord> running, String hash) {
+        try {
+            IdempotencyRecord rec = running.get(WAIT_MS, TimeUnit.MILLISECONDS);
+            if (rec != null) return replay(rec, hash);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ignored) {
+            // таймаут или ошибка оригинала — клиент повторит
+        }
+        return inProgress();
+    }
+
+    private ResponseEntity<?> replay(IdempotencyRecord rec, String hash) {
+        if (!Objects.equals(rec.getRequestHash(), hash)) return reused();
+        return ResponseEntity.status(rec.getHttpStatus())
+                .header("Idempotent-Replayed", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(rec.getBody());
+    }
+
+    private ResponseEntity<?> reused() {
+        return ResponseEntity.status(422).body(Map.of("error", HEADER + " was already used with a different request"));
+    }
+
+    private ResponseEntity<?> inProgress() {
+        return ResponseEntity.status(409)
+                .header("Retry-After", "1")
+                .body(Map.of("error", "A request with this " + HEADER + " is still in progress"));
+    }
+
+    private void remember(IdempotencyRecord rec) {
+        recent.put(rec.getId(), rec);
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(request);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            return String.valueOf(Objects.hashCode(request));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.miras.smartclub.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.miras.smartclub.changefeed.ChangeFeed;
+import com.miras.smartclub.model.ChangeEvent;
+import com.miras.smartclub.model.Club;
+import com.miras.smartclub.model.Seat;
+import com.miras.smartclub.repository.ClubRepository;
+import com.miras.smartclub.repository.SeatRepository;
+import com.miras.smartclub.util.CsvUtils;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Потоковый импорт клубов, позиций прайса и мест из NDJSON или CSV.
+ * Файл читается построчно, записи валидируются на лету и пишутся unordered bulk-пачками фиксированного размера,
+ * так что память не зависит от размера файла. Прогресс и ошибки по строкам уходят в {@code sink} по мере работы.
+ *
+ * Тип записи задаётся полем/колонкой {@code _type}: club | price | seat.
+ */
+@Service
+@RequiredArgsConstructor
+public class ImportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final int BATCH_SIZE = 500;
+
+    private final ClubRepository clubRepository;
+    private final SeatRepository seatRepository;
+    private final ClubService clubService;
+    private final ChangeFeed changeFeed;
+    private final ObjectMapper objectMapper;
+
+    private static class Batch {
+        final List<Club> clubs = new ArrayList<>();
+        final List<Map.Entry<String, Club.PriceItem>> prices = new ArrayList<>();
+        final List<Seat> seats = new ArrayList<>();
+
+        int size() {
+            return clubs.size() + prices.size() + seats.size();
+        }
+    }
+
+    /**
+     * Возвращает итоговую сводку; она же последней уходит в {@code sink}.
+     */
+    public Map<String, Object> importStream(BufferedReader reader, Format format, Consumer<Map<String, Object>> sink) throws IOException {
+        long lineNo = 0, clubs = 0, prices = 0, seats = 0, errors = 0, pricesWithoutClub = 0;
+        List<String> header = null;
+        Batch batch = new Batch();
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank()) continue;
+            try {
+                ObjectNode node;
+                if (format == Format.CSV) {
+                    if (header == null) {
+                        header = CsvUtils.parseLine(line.replace("\uFEFF", ""));
+                        continue;
+                    }
+                    node = csvRow(header, CsvUtils.parseLine(line));
+                } else {
+                    JsonNode parsed = objectMapper.readTree(line);
+                    if (!(parsed instanceof ObjectNode)) throw new IllegalArgumentException("Expected JSON object");
+                    node = (ObjectNode) parsed;
+                }
+                addRecord(node, batch);
+            } catch (Exception e) {
+                errors++;
+                sink.accept(Map.of("line", lineNo, "error", String.valueOf(e.getMessage())));
+                continue;
+            }
+
+            if (batch.size() >= BATCH_SIZE) {
+                pricesWithoutClub += flush(batch);
+                clubs += batch.clubs.size();
+                prices += batch.prices.size();
+                seats += batch.seats.size();
+                batch = new Batch();
+                sink.accept(Map.of("progress", Map.of("lines", lineNo, "clubs", clubs, "prices", prices, "seats", seats, "errors", errors)));
+            }
+        }
+        pricesWithoutClub += flush(batch);
+        clubs += batch.clubs.size();
+        prices += batch.prices.size();
+        seats += batch.seats.size();
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("done", true);
+        summary.put("lines", lineNo);
+        summary.put("clubs", clubs);
+        summary.put("prices", prices);
+        summary.put("pricesWithoutClub", pricesWithoutClub);
+        summary.put("seats", seats);
+        summary.put("errors", errors);
+        sink.accept(summary);
+        return summary;
+    }
+
+    private ObjectNode csvRow(List<String> header, List<String> values) {
+        if (values.size() > header.size()) throw new IllegalArgumentException("More values than header columns");
+        ObjectNode node = objectMapper.createObjectNode();
+        for (int i = 0; i < values.size(); i++) {
+            String v = values.get(i).trim();
+            if (!v.isEmpty()) node.put(header.get(i).trim(), v);
+        }
+        return node;
+    }
+
+    private void addRecord(ObjectNode node, Batch batch) throws IOException {
+        JsonNode typeNode = node.remove("_type");
+        String type = typeNode == null ? "" : typeNode.asText().trim().toLowerCase();
+        switch (type) {
+            case "club" -> {
+                Club c = objectMapper.treeToValue(node, Club.class);
+                if (c.getName() == null || c.getName().isBlank()) throw new IllegalArgumentException("club.name required");
+                if (c.getLatitude() != null && (c.getLatitude() < -90 || c.getLatitude() > 90)) throw new IllegalArgumentException("club.latitude out of range");
+                if (c.getLongitude() != null && (c.getLongitude() < -180 || c.getLongitude() > 180)) throw new IllegalArgumentException("club.longitude out of range");
+                if (c.getId() == null || c.getId().isBlank()) c.setId(new ObjectId().toHexString());
+                ClubService.syncPosition(c);
+                batch.clubs.add(c);
+            }
+            case "price" -> {
+                JsonNode clubId = node.remove("clubId");
+                if (clubId == null || clubId.asText().isBlank()) throw new IllegalArgumentException("price.clubId required");
+                Club.PriceItem pi = objectMapper.treeToValue(node, Club.PriceItem.class);
+                if (pi.getService() == null && pi.getCategory() == null) throw new IllegalArgumentException("price.service or price.category required");
+                batch.prices.add(Map.entry(clubId.asText(), pi));
+            }
+            case "seat" -> {
+                // в API место отдаётся как isVip — принимаем оба написания
+                if (node.has("isVip") && !node.has("vip")) node.set("vip", node.remove("isVip"));
+                Seat s = objectMapper.treeToValue(node, Seat.class);
+                if (s.getClubId() == null || s.getClubId().isBlank()) throw new IllegalArgumentException("seat.clubId required");
+                if (s.getLabel() == null || s.getLabel().isBlank()) throw new IllegalArgumentException("seat.label required");
+                if (s.getOrder() < 0) throw new IllegalArgumentException("seat.order must be >= 0");
+                batch.seats.add(s);
+            }
+            default -> throw new IllegalArgumentException("Unknown _type '" + type + "' (expected club, price or seat)");
+        }
+    }
+
+    /**
+     * Пишет пачку: сначала клубы (чтобы прайс из той же пачки нашёл свой клуб), потом прайс и места.
+     * Возвращает число позиций прайса, для которых клуб не найден.
+     */
+    private long flush(Batch batch) {
+        if (batch.size() == 0) return 0;
+        clubRepository.bulkUpsert(batch.clubs);
+
+        long orphanPrices = 0;
+        if (!batch.prices.isEmpty()) {
+            orphanPrices = batch.prices.size() - clubRepository.bulkAddPrices(batch.prices);
+        }
+        seatRepository.bulkUpsert(batch.seats);
+
+        Set<String> touchedClubs = new HashSet<>();
+        batch.clubs.forEach(c -> touchedClubs.add(c.getId()));
+        batch.prices.forEach(p -> touchedClubs.add(p.getKey()));
+        if (!touchedClubs.isEmpty()) clubService.reindex(touchedClubs);
+
+        Set<String> seatClubs = new HashSet<>();
+        batch.seats.forEach(s -> seatClubs.add(s.getClubId()));
+        for (String clubId : seatClubs) {
+            changeFeed.publish(new ChangeEvent(ChangeEvent.Entity.SEAT, null, clubId, "IMPORT"));
+        }
+        return Math.max(0, orphanPrices);
+    }
+}
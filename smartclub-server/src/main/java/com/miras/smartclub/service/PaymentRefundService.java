@@ -0,0 +1,92 @@
+package com.miras.smartclub.service;
+
+import com.miras.smartclub.event.ReservationChangedEvent;
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.repository.ReservationRepository;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.RefundCreateParams;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Возврат платежей по броням, помеченным refundStatus = REQUIRED (см. ReservationService.activateReservation).
+ * Возврат уходит в Stripe сразу после пометки, в отдельном пуле refundExecutor (вне лока, запроса вебхука
+ * и queryExecutor); не прошедшие повторяет sweep.
+ * Idempotency-ключ — id платежа, так что повтор (вебхук дважды, sweep параллельно с событием) второй возврат не создаст.
+ * Пометка пишется в бронь до вызова Stripe: если узел упадёт между ними, возврат подхватит sweep любого узла.
+ */
+@Service
+public class PaymentRefundService {
+
+    // Stripe: платёж уже возвращён целиком — считаем возврат сделанным
+    private static final String ALREADY_REFUNDED = "charge_already_refunded";
+
+    private final ReservationService reservationService;
+    private final ReservationRepository reservationRepository;
+    private final ExecutorService refundExecutor;
+    private final String stripeApiKey;
+
+    public PaymentRefundService(ReservationService reservationService,
+                                ReservationRepository reservationRepository,
+                                @Qualifier("refundExecutor") ExecutorService refundExecutor,
+                                @Value("${stripe.api.key:your_stripe_secret_key}") String stripeApiKey) {
+        this.reservationService = reservationService;
+        this.reservationRepository = reservationRepository;
+        this.refundExecutor = refundExecutor;
+        this.stripeApiKey = stripeApiKey;
+    }
+
+    @EventListener
+    public void onReservationChanged(ReservationChangedEvent event) {
+        Reservation r = event.getReservation();
+        if (r.getRefundStatus() != Reservation.RefundStatus.REQUIRED) return;
+        refundExecutor.execute(() -> refund(r));
+    }
+
+    @Scheduled(fixedDelayString = "${smartclub.payment.refund-retry-ms:300000}")
+    public void sweep() {
+        for (Reservation r : reservationRepository.findByRefundStatus(Reservation.RefundStatus.REQUIRED)) {
+            refund(r);
+        }
+    }
+
+    void refund(Reservation r) {
+        if (r.getPaymentIntentId() == null) {
+            System.err.println("[REFUND] reservation " + r.getId() + " marked for refund without payment intent");
+            return;
+        }
+        String refundId;
+        try {
+            RefundCreateParams params = RefundCreateParams.builder()
+                    .setPaymentIntent(r.getPaymentIntentId())
+                    .putMetadata("reservationId", r.getId())
+                    .build();
+            RequestOptions options = RequestOptions.builder()
+                    .setApiKey(stripeApiKey)
+                    .setIdempotencyKey("refund:" + r.getPaymentIntentId())
+                    .build();
+            refundId = Refund.create(params, options).getId();
+        } catch (StripeException e) {
+            if (!ALREADY_REFUNDED.equals(e.getCode())) {
+                // пометка остаётся REQUIRED — повторит sweep
+                System.err.println("[REFUND] reservation " + r.getId() + " payment " + r.getPaymentIntentId() + ": " + e.getMessage());
+                return;
+            }
+            refundId = null;
+        } catch (RuntimeException e) {
+            System.err.println("[REFUND] reservation " + r.getId() + " failed: " + e.getMessage());
+            return;
+        }
+
+        reservationService.markRefunded(r.getId(), refundId);
+        System.out.println("[REFUND] reservation " + r.getId() + " payment " + r.getPaymentIntentId() + " refunded"
+                + (refundId != null ? " (" + refundId + ")" : ""));
+    }
+}
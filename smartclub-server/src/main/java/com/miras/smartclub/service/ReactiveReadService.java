@@ -0,0 +1,58 @@
+package com.miras.smartclub.service;
+
+import com.miras.smartclub.exception.ServiceUnavailableException;
+import com.miras.smartclub.model.Club;
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.repository.ReactiveReadRepository;
+import com.miras.smartclub.resilience.RepositoryCircuitBreaker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Реактивный read-path: клубы, availability и история без блокировки потоков на Mongo.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReactiveReadService {
+
+    private static final int HISTORY_BATCH = 50;
+
+    private final ReactiveReadRepository readRepository;
+    private final AvailabilityCache availabilityCache;
+    private final RepositoryCircuitBreaker repositoryCircuitBreaker;
+
+    public Flux<Club> clubs() {
+        return readRepository.clubs();
+    }
+
+    public Mono<Club> club(String id) {
+        return readRepository.club(id);
+    }
+
+    /**
+     * Места и занятость запрашиваются параллельно; ответ в том же формате, что у /booking/availability.
+     * Идёт через тот же {@link AvailabilityCache}: общий single-flight и микрокеш с блокирующим путём,
+     * а при отказе Mongo — устаревший ответ с пометкой stale. При разомкнутом предохранителе запрос в Mongo
+     * не идёт вовсе: сразу устаревший ответ, без ожидания таймаута драйвера.
+     */
+    public Mono<Map<String, Object>> availability(String clubId, Date start, Date end) {
+        return availabilityCache.getAvailability(clubId, start, end, Mono.defer(() -> repositoryCircuitBreaker.isOpen()
+                ? Mono.error(new ServiceUnavailableException("Database temporarily unavailable"))
+                : Mono.zip(
+                        readRepository.seats(clubId).collectList(),
+                        readRepository.occupying(clubId, start, end).collectList()
+                ).map(t -> ReservationService.availabilityView(t.getT1(), t.getT2(), start, end))));
+    }
+
+    /**
+     * Не больше {@code limit} последних броней: take() отменяет курсор, как только набрано нужное.
+     */
+    public Flux<Reservation> history(String userId, int limit) {
+        return readRepository.history(userId, Math.min(limit, HISTORY_BATCH)).take(limit);
+    }
+}
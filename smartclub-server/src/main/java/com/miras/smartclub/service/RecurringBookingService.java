@@ -0,0 +1,73 @@
+package com.miras.smartclub.service;
+
+import com.miras.smartclub.model.Reservation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.*;
+
+/**
+ * Повторяющиеся брони («каждый вторник 19:00–23:00»): разворачивает правило в вхождения
+ * и отдаёт их ReservationService одной серией — одна проверка конфликтов и одна bulk-вставка.
+ */
+@Service
+public class RecurringBookingService {
+
+    public enum Frequency { DAILY, WEEKLY }
+
+    public static final int MAX_OCCURRENCES = 52;
+
+    private final ReservationService reservationService;
+    private final ZoneId zone;
+
+    public RecurringBookingService(ReservationService reservationService,
+                                   @Value("${smartclub.booking.zone:${smartclub.reports.zone:Asia/Almaty}}") String zone) {
+        this.reservationService = reservationService;
+        this.zone = ZoneId.of(zone);
+    }
+
+    /**
+     * Вхождения считаются по местному времени клуба (шаг в календарных днях, а не в 24 ч),
+     * длительность каждого равна длительности первого. Окно не короче шага отклоняется: соседние вхождения
+     * пересеклись бы и заняли одни и те же места дважды.
+     */
+    public List<Reservation> expand(Reservation first, Frequency frequency, int interval, int occurrences) {
+        if (occurrences <= 0 || occurrences > MAX_OCCURRENCES) {
+            throw new IllegalArgumentException("occurrences must be between 1 and " + MAX_OCCURRENCES);
+        }
+        if (interval <= 0) throw new IllegalArgumentException("interval must be positive");
+
+        int stepDays = (frequency == Frequency.WEEKLY ? 7 : 1) * interval;
+        ZonedDateTime start = first.getStart().toInstant().atZone(zone);
+        Duration length = Duration.between(first.getStart().toInstant(), first.getEnd().toInstant());
+        if (occurrences > 1 && length.compareTo(Duration.ofDays(stepDays)) >= 0) {
+            throw new IllegalArgumentException("reservation window must be shorter than the series step (" + stepDays + " day(s))");
+        }
+
+        List<Reservation> result = new ArrayList<>(occurrences);
+        for (int i = 0; i < occurrences; i++) {
+            ZonedDateTime s = start.plusDays((long) stepDays * i);
+            Reservation r = new Reservation();
+            r.setClubId(first.getClubId());
+            r.setUserId(first.getUserId());
+            r.setSeatIds(first.getSeatIds());
+            r.setStart(Date.from(s.toInstant()));
+            r.setEnd(Date.from(s.toInstant().plus(length)));
+            r.setDurationMinutes(first.getDurationMinutes());
+            r.setPackageId(first.getPackageId());
+            r.setTotalPrice(first.getTotalPrice());
+            r.setStatus(first.getStatus());
+            r.setSeriesId(first.getSeriesId());
+            result.add(r);
+        }
+        return result;
+    }
+
+    public List<Map<String, Object>> reserveRecurring(Reservation first, Frequency frequency, int interval, int occurrences) {
+        if (first.getSeriesId() == null) first.setSeriesId(UUID.randomUUID().toString());
+        return reservationService.reserveSeries(expand(first, frequency, interval, occurrences));
+    }
+}
@@ -0,0 +1,270 @@
+package com.miras.smartclub.service;
+
+import com.miras.smartclub.event.ReservationChangedEvent;
+import com.miras.smartclub.index.ReservationStateIndex;
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.ReservationJournalEntry;
+import com.miras.smartclub.model.ReservationSnapshotChunk;
+import com.miras.smartclub.model.ReservationState;
+import com.miras.smartclub.repository.ReservationJournalRepository;
+import com.miras.smartclub.repository.ReservationRepository;
+import com.miras.smartclub.repository.ReservationSnapshotRepository;
+import com.miras.smartclub.repository.SequenceRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+/**
+ * Append-only журнал жизненного цикла броней (reservation_events) и in-memory представление, собранное из него
+ * (smartclub.journal.enabled, по умолчанию выключен).
+ * <p>
+ * Каждая запись брони в ReservationService (создание, смена статуса) добавляет событие с номером из sequences
+ * и состоянием брони после записи — в queryExecutor, не задерживая запись брони и не держа лок клуба.
+ * Представление догоняет журнал опросом (события всех узлов), а каждые
+ * {@code snapshot-every} событий пишется снимок. Холодный старт — последний полный снимок плюс события после него,
+ * так что прогрев зависит от недавней активности, а не от всей истории. Если снимка ещё нет, представление
+ * один раз собирается из незакончившихся броней коллекции и сразу сохраняется снимком.
+ * Представление — запасной источник занятости для {@link AvailabilityCache}, когда Mongo недоступна,
+ * а last-known-good снимка нужного окна нет (например, сразу после рестарта узла).
+ * <p>
+ * Номера выдаются до вставки, поэтому событие с меньшим номером может появиться позже большего.
+ * Граница «всё учтено» двигается только по непрерывным номерам; дыру, не заполнившуюся за {@code GAP_GRACE_MS}
+ * (узел упал между выдачей номера и вставкой), пропускаем.
+ */
+@Service
+public class ReservationJournal {
+
+    private static final String SEQUENCE = "reservation_events";
+    private static final int TAIL_BATCH = 1000;
+    private static final int SNAPSHOT_CHUNK = 1000;
+    private static final long GAP_GRACE_MS = 5000;
+
+    private final ReservationJournalRepository journalRepository;
+    private final ReservationSnapshotRepository snapshotRepository;
+    private final ReservationRepository reservationRepository;
+    private final SequenceRepository sequenceRepository;
+    private final ExecutorService queryExecutor;
+    private final boolean enabled;
+    private final long snapshotEvery;
+    private final long retentionMs;
+
+    private final ReservationStateIndex index = new ReservationStateIndex();
+    private volatile boolean ready;
+    private volatile long applied;        // все события с номером <= applied учтены (или признаны потерянными)
+    private volatile long snapshotSeq;
+    private volatile long warmUpMs;
+    private volatile long caughtUpAt;     // когда tail последний раз дочитал журнал до конца
+    private long gapSince;                // только под synchronized tail()
+
+    public ReservationJournal(ReservationJournalRepository journalRepository,
+                              ReservationSnapshotRepository snapshotRepository,
+                              ReservationRepository reservationRepository,
+                              SequenceRepository sequenceRepository,
+                              @Qualifier("queryExecutor") ExecutorService queryExecutor,
+                              @Value("${smartclub.journal.enabled:false}") boolean enabled,
+                              @Value("${smartclub.journal.snapshot-every:10000}") long snapshotEvery,
+                              @Value("${smartclub.journal.retention-hours:24}") long retentionHours) {
+        this.journalRepository = journalRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.reservationRepository = reservationRepository;
+        this.sequenceRepository = sequenceRepository;
+        this.queryExecutor = queryExecutor;
+        this.enabled = enabled;
+        this.snapshotEvery = snapshotEvery;
+        this.retentionMs = retentionHours * 3_600_000L;
+    }
+
+    @EventListener
+    public void onReservationChanged(ReservationChangedEvent event) {
+        if (!enabled) return;
+        Reservation r = event.getReservation();
+        ReservationJournalEntry e = new ReservationJournalEntry();
+        e.setReservationId(r.getId());
+        e.setType(event.isCreated() ? ReservationJournalEntry.Type.CREATED : ReservationJournalEntry.Type.STATUS_CHANGED);
+        e.setPreviousStatus(event.getPreviousStatus());
+        e.setStatus(r.getStatus());
+        // состояние снимаем сейчас: объект брони дальше может меняться вызывающим
+        e.setState(ReservationState.of(r));
+        // порядок вставок не важен — представление применяет события по версиям брони
+        queryExecutor.execute(() -> {
+            try {
+                e.setId(sequenceRepository.next(SEQUENCE));
+                journalRepository.insert(e);
+            } catch (RuntimeException ex) {
+                // запись брони уже прошла; без события представление увидит её только после пересборки
+                System.err.println("[JOURNAL] failed to append event for reservation " + r.getId() + ": " + ex.getMessage());
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) return;
+        queryExecutor.execute(() -> {
+            try {
+                load();
+            } catch (RuntimeException e) {
+                System.err.println("[JOURNAL] warm-up failed: " + e.getMessage());
+            }
+        });
+    }
+
+    private void load() {
+        long t0 = System.currentTimeMillis();
+        Optional<ReservationSnapshotChunk> head = snapshotRepository.findFirstByLastTrueOrderBySeqDesc();
+        long from;
+        if (head.isPresent()) {
+            from = head.get().getSeq();
+            for (ReservationSnapshotChunk chunk : snapshotRepository.findBySeqOrderByPartAsc(from)) {
+                if (chunk.getEntries() != null) chunk.getEntries().forEach(index::apply);
+            }
+        } else {
+            // номер берём до чтения коллекции: всё, что записано до него, коллекция уже покажет, остальное — журнал
+            from = sequenceRepository.current(SEQUENCE);
+            try (Stream<Reservation> live = reservationRepository.findByEndAfter(new Date(t0 - retentionMs))) {
+                live.forEach(r -> index.apply(ReservationState.of(r)));
+            }
+        }
+        applied = from;
+        snapshotSeq = from;
+        long loaded = index.size();
+        long replayed = tail();
+        if (head.isEmpty()) writeSnapshot();
+
+        ready = true;
+        warmUpMs = System.currentTimeMillis() - t0;
+        System.out.println("[JOURNAL] warm-up: " + (head.isPresent() ? "snapshot seq=" + from : "bootstrap from reservations")
+                + ", " + loaded + " reservation(s), replayed " + replayed + " event(s) in " + warmUpMs + " ms");
+    }
+
+    @Scheduled(fixedDelayString = "${smartclub.journal.tail-ms:1000}")
+    public void poll() {
+        if (!enabled || !ready) return;
+        try {
+            tail();
+            if (applied - snapshotSeq >= snapshotEvery) writeSnapshot();
+        } catch (RuntimeException e) {
+            System.err.println("[JOURNAL] tail failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Догнать журнал от {@code applied}. Возвращает число применённых событий.
+     */
+    private synchronized long tail() {
+        long count = 0;
+        while (true) {
+            List<ReservationJournalEntry> batch = journalRepository.findByIdGreaterThanOrderByIdAsc(applied, PageRequest.of(0, TAIL_BATCH));
+            long next = applied;
+            boolean blocked = false;
+            long now = System.currentTimeMillis();
+            for (ReservationJournalEntry e : batch) {
+                // события за дырой тоже применяем: по версиям это безопасно, а при следующем проходе они придут снова
+                if (index.apply(e.getState())) count++;
+                if (blocked) continue;
+                if (e.getId() == next + 1) {
+                    next = e.getId();
+                    continue;
+                }
+                if (gapSince == 0) gapSince = now;
+                if (now - gapSince < GAP_GRACE_MS) {
+                    blocked = true;
+                    continue;
+                }
+                System.err.println("[JOURNAL] skipping missing event(s) " + (next + 1) + ".." + (e.getId() - 1));
+                gapSince = 0;
+                next = e.getId();
+            }
+            if (!blocked) gapSince = 0;
+            applied = next;
+            if (blocked || batch.size() < TAIL_BATCH) {
+                caughtUpAt = now;
+                return count;
+            }
+        }
+    }
+
+    private synchronized void writeSnapshot() {
+        long seq = applied;
+        int pruned = index.prune(new Date(System.currentTimeMillis() - retentionMs));
+        List<ReservationState> entries = index.snapshot();
+        int parts = Math.max(1, (entries.size() + SNAPSHOT_CHUNK - 1) / SNAPSHOT_CHUNK);
+        try {
+            for (int part = 0; part < parts; part++) {
+                ReservationSnapshotChunk chunk = new ReservationSnapshotChunk();
+                chunk.setId(seq + ":" + part);
+                chunk.setSeq(seq);
+                chunk.setPart(part);
+                chunk.setLast(part == parts - 1);
+                chunk.setEntries(entries.subList(part * SNAPSHOT_CHUNK, Math.min(entries.size(), (part + 1) * SNAPSHOT_CHUNK)));
+                snapshotRepository.insert(chunk);
+            }
+        } catch (DuplicateKeyException e) {
+            // снимок на этот номер уже пишет другой узел
+            snapshotSeq = seq;
+            return;
+        }
+        snapshotRepository.deleteBySeqLessThan(seq);
+        snapshotSeq = seq;
+        System.out.println("[JOURNAL] snapshot seq=" + seq + ": " + entries.size() + " reservation(s) in " + parts
+                + " part(s), pruned " + pruned);
+    }
+
+    /**
+     * История переходов одной брони по журналу.
+     */
+    public List<ReservationJournalEntry> events(String reservationId) {
+        return journalRepository.findByReservationIdOrderByIdAsc(reservationId);
+    }
+
+    /**
+     * Брони клуба, держащие места в [start, end), по представлению журнала; null — журнал выключен или ещё не прогрет.
+     * Отстаёт от коллекции на время с {@link #caughtUpAt()}; операторских блокировок мест в нём нет.
+     */
+    public List<Reservation> occupying(String clubId, Date start, Date end) {
+        if (!enabled || !ready) return null;
+        List<Reservation> result = new ArrayList<>();
+        for (ReservationState s : index.occupying(clubId, start, end)) {
+            Reservation r = new Reservation();
+            r.setId(s.getReservationId());
+            r.setClubId(s.getClubId());
+            r.setUserId(s.getUserId());
+            r.setSeatIds(s.getSeatIds());
+            r.setStart(s.getStart());
+            r.setEnd(s.getEnd());
+            r.setStatus(s.getStatus());
+            r.setHoldUntil(s.getHoldUntil());
+            result.add(r);
+        }
+        return result;
+    }
+
+    public long caughtUpAt() {
+        return caughtUpAt;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("ready", ready);
+        m.put("appliedSeq", applied);
+        m.put("snapshotSeq", snapshotSeq);
+        m.put("caughtUpAt", caughtUpAt == 0 ? null : new Date(caughtUpAt));
+        m.put("reservations", index.size());
+        m.put("warmUpMs", warmUpMs);
+        return m;
+    }
+}
@@ -1,51 +1,334 @@
 package com.miras.smartclub.service;
 
+import com.miras.smartclub.event.ReservationChangedEvent;
+import com.miras.smartclub.exception.ConflictException;
+import com.miras.smartclub.exception.SeatsConflictException;
+import com.miras.smartclub.index.SeatBitmap;
 import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.ReservationTransition;
 import com.miras.smartclub.model.Seat;
+import com.miras.smartclub.repository.ReservationGroupCommit;
 import com.miras.smartclub.repository.ReservationRepository;
 import com.miras.smartclub.repository.SeatRepository;
-import lombok.RequiredArgsConstructor;
+import com.miras.smartclub.util.StripedLocks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 public class ReservationService {
 
     private final ReservationRepository reservationRepository;
     private final SeatRepository seatRepository;
+    private final ReservationGroupCommit groupCommit;
+
+    private final ApplicationEventPublisher events;
+
+    // сколько неоплаченная (PENDING) бронь держит места; потом её снимает sweep холдов (WaitlistService)
+    private final long paymentHoldMs;
+
+    private final StripedLocks clubLocks = new StripedLocks(64);
+
+    public ReservationService(ReservationRepository reservationRepository,
+                              SeatRepository seatRepository,
+                              ReservationGroupCommit groupCommit,
+                              ApplicationEventPublisher events,
+                              @Value("${smartclub.booking.payment-hold-minutes:40}") long paymentHoldMinutes) {
+        this.reservationRepository = reservationRepository;
+        this.seatRepository = seatRepository;
+        this.groupCommit = groupCommit;
+        this.events = events;
+        this.paymentHoldMs = paymentHoldMinutes * 60_000L;
+    }
 
     public List<Reservation> findConflicts(String clubId, List<String> seatIds, Date start, Date end) {
         if (seatIds == null || seatIds.isEmpty()) return Collections.emptyList();
-        return reservationRepository.findActiveOverlapping(clubId, seatIds, start, end);
+        return withPending(reservationRepository.findActiveOverlapping(clubId, seatIds, start, end),
+                clubId, seatIds, start, end);
     }
 
     @Transactional
     public Reservation createReservation(Reservation r) {
         if (r == null) throw new IllegalArgumentException("Reservation is null");
+        Reservation saved = reservationRepository.save(withDefaults(r));
+        events.publishEvent(new ReservationChangedEvent(saved, null));
+        return saved;
+    }
+
+    /**
+     * Проверка конфликтов и вставка под локом клуба: два параллельных запроса на этом узле
+     * не могут оба пройти проверку по одним и тем же местам. Неоплаченная бронь тоже держит места —
+     * до holdUntil (срок оплаты, см. {@link #withDefaults}), так что следующий запрос на эти места получит конфликт.
+     * Лок локален для узла: между узлами гонку закрывает только проверка при активации.
+     * В режиме group commit под локом бронь только ставится в группу (и сразу видна проверкам конфликтов),
+     * а запись группы ждём уже без лока.
+     */
+    public Reservation reserve(Reservation r) {
+        CompletableFuture<Reservation> pending;
+        ReentrantLock lock = clubLocks.get(r.getClubId());
+        lock.lock();
+        try {
+            List<Reservation> conflicts = findConflicts(r.getClubId(), r.getSeatIds(), r.getStart(), r.getEnd());
+            if (!conflicts.isEmpty()) {
+                throw new SeatsConflictException("Some seats already booked", conflicts);
+            }
+            if (!groupCommit.isEnabled()) return createReservation(r);
+            pending = groupCommit.insert(withDefaults(r));
+        } finally {
+            lock.unlock();
+        }
+        return inserted(pending);
+    }
+
+    /**
+     * Выполнить {@code action} под локом клуба — тем же, что у {@link #reserve}: запись, меняющая занятость мест
+     * не через бронь (блокировка оператора), не разойдётся с параллельной проверкой конфликтов на этом узле.
+     */
+    public <T> T underClubLock(String clubId, Supplier<T> action) {
+        ReentrantLock lock = clubLocks.get(clubId);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Неоплаченной брони без срока ставится срок оплаты holdUntil: до него она держит места,
+     * после — её отменяет sweep холдов, и места освобождаются.
+     */
+    private Reservation withDefaults(Reservation r) {
         if (r.getCreatedAt() == null) r.setCreatedAt(new Date());
         if (r.getStatus() == null) r.setStatus(Reservation.ReservationStatus.ACTIVE);
-        return reservationRepository.save(r);
+        if (r.getStatus() == Reservation.ReservationStatus.PENDING && r.getHoldUntil() == null) {
+            r.setHoldUntil(new Date(r.getCreatedAt().getTime() + paymentHoldMs));
+        }
+        return r;
+    }
+
+    private Reservation inserted(CompletableFuture<Reservation> pending) {
+        Reservation saved = await(pending);
+        events.publishEvent(new ReservationChangedEvent(saved, null));
+        return saved;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Брони из Mongo плюс ещё не записанные брони группы, пересекающиеся с окном.
+     * Результат репозитория может быть неизменяемым — при слиянии копируем.
+     */
+    private List<Reservation> withPending(List<Reservation> stored, String clubId, Collection<String> seatIds, Date start, Date end) {
+        if (!groupCommit.isEnabled()) return stored;
+        List<Reservation> pending = groupCommit.pendingOverlapping(clubId, seatIds, start, end);
+        if (pending.isEmpty()) return stored;
+        List<Reservation> merged = new ArrayList<>(stored);
+        merged.addAll(pending);
+        return merged;
+    }
+
+    /**
+     * Серия броней одним шагом под локом клуба: одна проверка конфликтов по всем окнам сразу ($or),
+     * свободные вхождения вставляются одной пачкой. Вхождения с конфликтом пропускаются — в том числе пересекающиеся
+     * с уже принятым вхождением той же серии (по местам и окну), так что серия сама себя не задваивает.
+     * Результат — по элементу на вхождение в исходном порядке: booked, reservationId или conflicts.
+     */
+    public List<Map<String, Object>> reserveSeries(List<Reservation> occurrences) {
+        if (occurrences == null || occurrences.isEmpty()) return Collections.emptyList();
+        String clubId = occurrences.get(0).getClubId();
+
+        Set<String> seatIds = new HashSet<>();
+        for (Reservation occ : occurrences) {
+            if (occ.getSeatIds() != null) seatIds.addAll(occ.getSeatIds());
+        }
+
+        ReentrantLock lock = clubLocks.get(clubId);
+        lock.lock();
+        try {
+            Date from = occurrences.stream().map(Reservation::getStart).min(Date::compareTo).get();
+            Date to = occurrences.stream().map(Reservation::getEnd).max(Date::compareTo).get();
+            List<Reservation> existing = withPending(
+                    reservationRepository.findActiveOverlappingAny(clubId, seatIds, occurrences), clubId, seatIds, from, to);
+
+            List<List<Reservation>> conflicts = new ArrayList<>(occurrences.size());
+            List<Reservation> free = new ArrayList<>();
+            for (Reservation occ : occurrences) {
+                List<Reservation> own = new ArrayList<>();
+                for (Reservation e : existing) {
+                    boolean overlaps = e.getStart().before(occ.getEnd()) && e.getEnd().after(occ.getStart());
+                    if (overlaps && e.getSeatIds() != null && !Collections.disjoint(e.getSeatIds(), occ.getSeatIds())) {
+                        own.add(e);
+                    }
+                }
+                if (own.isEmpty()) {
+                    for (Reservation accepted : free) {
+                        boolean overlaps = accepted.getStart().before(occ.getEnd()) && accepted.getEnd().after(occ.getStart());
+                        if (overlaps && !Collections.disjoint(accepted.getSeatIds(), occ.getSeatIds())) own.add(accepted);
+                    }
+                }
+                conflicts.add(own);
+                if (own.isEmpty()) {
+                    free.add(withDefaults(occ));
+                }
+            }
+
+            if (!free.isEmpty()) {
+                // insert(Iterable) — одна bulk-вставка; id проставляются в те же объекты
+                reservationRepository.insert(free);
+                for (Reservation saved : free) events.publishEvent(new ReservationChangedEvent(saved, null));
+            }
+
+            List<Map<String, Object>> result = new ArrayList<>(occurrences.size());
+            for (int i = 0; i < occurrences.size(); i++) {
+                Reservation occ = occurrences.get(i);
+                Map<String, Object> m = new HashMap<>();
+                m.put("index", i);
+                m.put("start", occ.getStart());
+                m.put("end", occ.getEnd());
+                boolean booked = conflicts.get(i).isEmpty();
+                m.put("booked", booked);
+                if (booked) m.put("reservationId", occ.getId());
+                else m.put("conflicts", conflicts.get(i));
+                result.add(m);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Лучший блок из {@code count} соседних (по Seat.order) свободных мест в окне.
+     * Занятыми считаются места ACTIVE-броней, неоплаченных броней до срока оплаты, холдов листа ожидания и блокировок.
+     * {@code vip}: true — только VIP, false — только обычные, null — любые. Пустой список — блока нет.
+     * Без лока клуба это только подсказка: бронировать подобранный блок — через {@link #reserveBestBlock}.
+     */
+    public List<Seat> recommendSeats(String clubId, Date start, Date end, int count, Boolean vip) {
+        List<Seat> seats = seatRepository.findByClubIdOrderByOrderAsc(clubId);
+        List<Reservation> overlapping = withPending(
+                reservationRepository.findActiveOverlappingAll(clubId, start, end), clubId, null, start, end);
+        return pickBlock(seats, overlapping, count, vip);
+    }
+
+    /**
+     * Подбор блока и создание брони на него одним шагом под локом клуба — как и в {@link #reserve},
+     * параллельный запрос на этом узле уже видит эту бронь (неоплаченную — до срока оплаты) и подберёт другие места.
+     * Места из {@code template} игнорируются и заполняются подобранными.
+     */
+    public Reservation reserveBestBlock(Reservation template, int count, Boolean vip) {
+        CompletableFuture<Reservation> pending;
+        ReentrantLock lock = clubLocks.get(template.getClubId());
+        lock.lock();
+        try {
+            List<Seat> block = recommendSeats(template.getClubId(), template.getStart(), template.getEnd(), count, vip);
+            if (block.isEmpty()) {
+                throw new ConflictException("No block of " + count + " adjacent free seats");
+            }
+            template.setSeatIds(block.stream().map(Seat::getId).collect(Collectors.toList()));
+            if (!groupCommit.isEnabled()) return createReservation(template);
+            pending = groupCommit.insert(withDefaults(template));
+        } finally {
+            lock.unlock();
+        }
+        return inserted(pending);
     }
 
+    private static List<Seat> pickBlock(List<Seat> seats, List<Reservation> overlapping, int count, Boolean vip) {
+        if (seats.isEmpty() || count <= 0) return Collections.emptyList();
+
+        Set<String> occupied = new HashSet<>();
+        for (Reservation r : overlapping) {
+            if (r.getSeatIds() != null) occupied.addAll(r.getSeatIds());
+        }
+
+        // бит = order - minOrder, если order уникальны: дырки в нумерации разрывают соседство.
+        // Иначе (дубли/огромный разброс) — просто позиция в отсортированном списке.
+        int minOrder = seats.get(0).getOrder();
+        int span = seats.get(seats.size() - 1).getOrder() - minOrder + 1;
+        boolean byOrder = span > 0 && span <= seats.size() * 4
+                && seats.stream().map(Seat::getOrder).distinct().count() == seats.size();
+
+        Seat[] slots = new Seat[byOrder ? span : seats.size()];
+        SeatBitmap free = new SeatBitmap(slots.length);
+        for (int i = 0; i < seats.size(); i++) {
+            Seat s = seats.get(i);
+            int bit = byOrder ? s.getOrder() - minOrder : i;
+            slots[bit] = s;
+            boolean eligible = vip == null || vip == s.isVip();
+            if (eligible && !occupied.contains(s.getId())) free.set(bit);
+        }
+
+        int startBit = free.findBestRun(count);
+        if (startBit < 0) return Collections.emptyList();
+        return new ArrayList<>(Arrays.asList(slots).subList(startBit, startBit + count));
+    }
+
+    private static final EnumSet<Reservation.ReservationStatus> CANCELLABLE =
+            EnumSet.of(Reservation.ReservationStatus.PENDING, Reservation.ReservationStatus.ACTIVE);
+
+    /**
+     * Отмена атомарным переходом PENDING/ACTIVE → CANCELLED (findAndModify, только $set нужных полей),
+     * так что параллельная активация вебхуком не перетирается. Уже отменённая бронь возвращается как есть.
+     */
     @Transactional
     public Optional<Reservation> cancelReservation(String reservationId, String cancelledByUserId) {
-        Optional<Reservation> maybe = reservationRepository.findById(reservationId);
-        if (maybe.isEmpty()) return Optional.empty();
+        Optional<Reservation> cancelled = transition(reservationId, null,
+                CANCELLABLE, Reservation.ReservationStatus.CANCELLED, cancelFields(cancelledByUserId));
+        if (cancelled.isPresent()) return cancelled;
 
-        Reservation r = maybe.get();
-        if (r.getStatus() == Reservation.ReservationStatus.CANCELLED) {
-            return Optional.of(r);
-        }
+        // guard не прошёл: брони нет или она уже отменена
+        return reservationRepository.findById(reservationId);
+    }
+
+    /**
+     * То же, но с проверкой владельца внутри того же условного update — один round trip на успешном пути.
+     * Empty означает, что бронь не найдена, чужая или уже отменена; причину вызывающий выясняет сам.
+     */
+    public Optional<Reservation> cancelOwnReservation(String reservationId, String userId) {
+        return transition(reservationId, userId,
+                CANCELLABLE, Reservation.ReservationStatus.CANCELLED, cancelFields(userId));
+    }
 
-        r.setStatus(Reservation.ReservationStatus.CANCELLED);
-        r.setCancelledAt(new Date());
-        r.setCancelledBy(cancelledByUserId);
-        Reservation saved = reservationRepository.save(r);
-        return Optional.of(saved);
+    /**
+     * Снять холд (неоплаченную бронь или холд листа ожидания): PENDING → CANCELLED. Если бронь успели оплатить (ACTIVE) — guard не пройдёт.
+     */
+    public Optional<Reservation> expireHold(String reservationId) {
+        return transition(reservationId, null,
+                EnumSet.of(Reservation.ReservationStatus.PENDING), Reservation.ReservationStatus.CANCELLED, cancelFields(null));
+    }
+
+    private Optional<Reservation> transition(String reservationId, String ownerUserId,
+                                             Collection<Reservation.ReservationStatus> from,
+                                             Reservation.ReservationStatus to,
+                                             Map<String, Object> fields) {
+        Optional<ReservationTransition> t = groupCommit.isEnabled()
+                ? await(groupCommit.transition(reservationId, ownerUserId, from, to, fields))
+                : reservationRepository.transition(reservationId, ownerUserId, from, to, fields);
+        t.ifPresent(tr -> events.publishEvent(new ReservationChangedEvent(tr.getReservation(), tr.getPreviousStatus())));
+        return t.map(ReservationTransition::getReservation);
+    }
+
+    private Map<String, Object> cancelFields(String cancelledByUserId) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("cancelledAt", new Date());
+        fields.put("cancelledBy", cancelledByUserId);
+        return fields;
     }
 
     public List<Reservation> getUserHistory(String userId) {
@@ -61,10 +344,19 @@ public class ReservationService {
         List<String> seatIds = seats.stream().map(Seat::getId).collect(Collectors.toList());
 
         List<Reservation> overlapping = reservationRepository.findActiveOverlapping(clubId, seatIds, start, end);
+        return availabilityView(seats, overlapping, start, end);
+    }
 
+    /**
+     * Ответ availability из мест клуба и пересекающихся броней/блокировок; общий для блокирующего и реактивного путей.
+     */
+    public static Map<String, Object> availabilityView(List<Seat> seats, List<Reservation> overlapping, Date start, Date end) {
         Set<String> occupied = new HashSet<>();
+        Set<String> blocked = new HashSet<>();
         for (Reservation r : overlapping) {
-            if (r.getSeatIds() != null) occupied.addAll(r.getSeatIds());
+            if (r.getSeatIds() == null) continue;
+            occupied.addAll(r.getSeatIds());
+            if (r.getStatus() == Reservation.ReservationStatus.BLOCKED) blocked.addAll(r.getSeatIds());
         }
 
         List<Map<String, Object>> seatsDto = seats.stream().map(s -> {
@@ -74,6 +366,7 @@ public class ReservationService {
             m.put("isVip", s.isVip());
             m.put("order", s.getOrder());
             m.put("available", !occupied.contains(s.getId()));
+            m.put("blocked", blocked.contains(s.getId()));
             return m;
         }).collect(Collectors.toList());
 
@@ -153,15 +446,78 @@ public class ReservationService {
                 .filter(r -> r.getStatus() == Reservation.ReservationStatus.CANCELLED || r.getEnd() == null || !r.getEnd().after(now))
                 .collect(Collectors.toList());
     }
+    /**
+     * Атомарный переход PENDING → ACTIVE. Повторный вебхук по уже активной брони — no-op,
+     * отменённую бронь оплата не воскрешает.
+     * До срока оплаты бронь держит места сама, но лок клуба локален для узла, и параллельный /reserve на другом узле
+     * мог занять те же места. Поэтому активация — под локом с проверкой конфликтов: если места заняты, бронь
+     * отменяется и помечается на возврат (refundStatus = REQUIRED). Так же помечается оплата, пришедшая
+     * после отмены брони (срок оплаты истёк, пользователь отменил). Сам возврат делает PaymentRefundService.
+     */
     public void activateReservation(String reservationId, String paymentIntentId) {
-        Reservation reservation = reservationRepository
+        System.out.println("🔄 Activating reservation: " + reservationId);
+        Reservation current = reservationRepository
                 .findById(reservationId)
                 .orElseThrow(() -> new RuntimeException("Reservation not found: " + reservationId));
 
-        System.out.println("🔄 Activating reservation: " + reservationId);
-        reservation.setStatus(Reservation.ReservationStatus.ACTIVE);
-        reservation.setPaymentIntentId(paymentIntentId);
-        Reservation saved = reservationRepository.save(reservation);
-        System.out.println("✅ Reservation activated: " + saved.getId() + " | Status: " + saved.getStatus());
+        ReentrantLock lock = clubLocks.get(current.getClubId());
+        lock.lock();
+        try {
+            List<Reservation> taken = findConflicts(current.getClubId(), current.getSeatIds(), current.getStart(), current.getEnd())
+                    .stream().filter(c -> !reservationId.equals(c.getId())).collect(Collectors.toList());
+            if (!taken.isEmpty()) {
+                Map<String, Object> fields = cancelFields(null);
+                fields.putAll(refundFields(paymentIntentId));
+                Optional<Reservation> cancelled = transition(reservationId, null,
+                        EnumSet.of(Reservation.ReservationStatus.PENDING), Reservation.ReservationStatus.CANCELLED, fields);
+                if (cancelled.isPresent()) {
+                    System.err.println("[PAYMENT] reservation " + reservationId + " not activated: seats taken by "
+                            + taken.size() + " reservation(s), cancelled; refund required for " + paymentIntentId);
+                    return;
+                }
+            } else {
+                Optional<Reservation> activated = transition(reservationId, null,
+                        EnumSet.of(Reservation.ReservationStatus.PENDING), Reservation.ReservationStatus.ACTIVE,
+                        Collections.singletonMap("paymentIntentId", paymentIntentId));
+                if (activated.isPresent()) {
+                    System.out.println("✅ Reservation activated: " + activated.get().getId() + " | Status: " + activated.get().getStatus());
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Reservation latest = reservationRepository.findById(reservationId).orElse(current);
+        if (latest.getStatus() == Reservation.ReservationStatus.CANCELLED && latest.getRefundStatus() == null) {
+            // деньги списаны за бронь, которой уже нет: возвращаем
+            Optional<Reservation> marked = transition(reservationId, null,
+                    EnumSet.of(Reservation.ReservationStatus.CANCELLED), Reservation.ReservationStatus.CANCELLED,
+                    refundFields(paymentIntentId));
+            if (marked.isPresent()) {
+                System.err.println("[PAYMENT] payment " + paymentIntentId + " for cancelled reservation " + reservationId
+                        + ", refund required");
+                return;
+            }
+        }
+        System.out.println("⚠️ Reservation " + reservationId + " not activated, current status: " + latest.getStatus());
+    }
+
+    private static Map<String, Object> refundFields(String paymentIntentId) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("paymentIntentId", paymentIntentId);
+        fields.put("refundStatus", Reservation.RefundStatus.REQUIRED);
+        return fields;
+    }
+
+    /**
+     * Возврат по брони прошёл: REQUIRED → REFUNDED. Статус брони (CANCELLED) не меняется.
+     */
+    public Optional<Reservation> markRefunded(String reservationId, String refundId) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("refundStatus", Reservation.RefundStatus.REFUNDED);
+        fields.put("refundId", refundId);
+        return transition(reservationId, null,
+                EnumSet.of(Reservation.ReservationStatus.CANCELLED), Reservation.ReservationStatus.CANCELLED, fields);
     }
 }
@@ -0,0 +1,256 @@
+package com.miras.smartclub.service;
+
+import com.miras.smartclub.event.ReservationChangedEvent;
+import com.miras.smartclub.model.OccupancyRollup;
+import com.miras.smartclub.model.OccupancyRollupPending;
+import com.miras.smartclub.model.OccupancyRollupRebuild;
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.repository.OccupancyRollupPendingRepository;
+import com.miras.smartclub.repository.OccupancyRollupRebuildRepository;
+import com.miras.smartclub.repository.OccupancyRollupRepository;
+import com.miras.smartclub.repository.ReservationRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+/**
+ * Почасовые и посуточные rollup'ы по клубам: место-минуты, выручка, число броней.
+ * Учитываются только ACTIVE брони: +1 при переходе в ACTIVE (создание или оплата), −1 при выходе из ACTIVE (отмена).
+ * Пока клуб пересобирается (флаг в occupancy_rollup_rebuilds), живые инкременты всех узлов откладываются
+ * в occupancy_rollup_pending и сверяются с пересобранными данными в конце пересборки.
+ */
+@Service
+public class RollupService {
+
+    private static final DateTimeFormatter HOUR_KEY = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH");
+    private static final DateTimeFormatter DAY_KEY = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    // защита от мусорных броней на месяцы вперёд
+    private static final long MAX_SPAN_MINUTES = 31L * 24 * 60;
+    // сколько бакетов копить в памяти при пересборке до сброса в Mongo
+    private static final int REBUILD_FLUSH_BUCKETS = 5000;
+    // флаг старше этого считается брошенным (узел упал посреди пересборки) и перехватывается
+    private static final long REBUILD_STALE_MS = 60L * 60 * 1000;
+
+    private final OccupancyRollupRepository rollupRepository;
+    private final OccupancyRollupRebuildRepository rebuildRepository;
+    private final OccupancyRollupPendingRepository pendingRepository;
+    private final ReservationRepository reservationRepository;
+    private final SeatService seatService;
+    private final ExecutorService queryExecutor;
+    private final ZoneId zone;
+    private final long rebuildGraceMs;
+
+    public RollupService(OccupancyRollupRepository rollupRepository,
+                         OccupancyRollupRebuildRepository rebuildRepository,
+                         OccupancyRollupPendingRepository pendingRepository,
+                         ReservationRepository reservationRepository,
+                         SeatService seatService,
+                         @Qualifier("queryExecutor") ExecutorService queryExecutor,
+                         @Value("${smartclub.reports.zone:Asia/Almaty}") String zone,
+                         @Value("${smartclub.reports.rebuild-grace-ms:2000}") long rebuildGraceMs) {
+        this.rollupRepository = rollupRepository;
+        this.rebuildRepository = rebuildRepository;
+        this.pendingRepository = pendingRepository;
+        this.reservationRepository = reservationRepository;
+        this.seatService = seatService;
+        this.queryExecutor = queryExecutor;
+        this.zone = ZoneId.of(zone);
+        this.rebuildGraceMs = rebuildGraceMs;
+    }
+
+    @EventListener
+    public void onReservationChanged(ReservationChangedEvent event) {
+        int sign = event.becameActive() ? 1 : event.leftActive() ? -1 : 0;
+        if (sign == 0) return;
+        Reservation r = event.getReservation();
+        if (r.getClubId() == null) return;
+        // $inc коммутативен, порядок не важен — не держим запрос брони ради отчётов
+        queryExecutor.execute(() -> {
+            try {
+                Optional<OccupancyRollupRebuild> rebuilding = rebuildRepository.findById(r.getClubId());
+                if (rebuilding.isPresent()) {
+                    pendingRepository.save(new OccupancyRollupPending(r, sign, rebuilding.get().getStartedAt()));
+                    return;
+                }
+                Map<String, OccupancyRollup.Delta> acc = new HashMap<>();
+                accumulate(acc, r, sign);
+                rollupRepository.applyDeltas(acc.values());
+            } catch (RuntimeException e) {
+                System.err.println("[ROLLUP] failed to apply reservation " + r.getId() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Пересобрать rollup'ы из истории (clubId == null — по всем клубам, по одному). Возвращает число учтённых броней.
+     * На время пересборки клуба ставится флаг: живые инкременты откладываются, а не пишутся поверх пересобираемых
+     * бакетов. Курсор по ACTIVE броням может увидеть бронь как до, так и после отложенного перехода, поэтому
+     * в конце по каждой отложенной броне сверяем: учёл ли её курсор и активна ли она после последнего перехода.
+     * Паузы rebuild-grace-ms до удаления и после снятия флага дают долететь инкрементам, проверившим флаг раньше.
+     */
+    public long rebuild(String clubId) {
+        List<String> clubIds;
+        if (clubId != null) {
+            clubIds = List.of(clubId);
+        } else {
+            Set<String> all = new TreeSet<>(reservationRepository.findActiveClubIds());
+            all.addAll(rollupRepository.findClubIds());
+            clubIds = new ArrayList<>(all);
+        }
+        long count = 0;
+        for (String id : clubIds) count += rebuildClub(id);
+        return count;
+    }
+
+    private long rebuildClub(String clubId) {
+        Date startedAt = startRebuild(clubId);
+        Set<String> counted = new HashSet<>();
+        try {
+            awaitGrace();
+            rollupRepository.deleteByClubId(clubId);
+
+            Map<String, OccupancyRollup.Delta> acc = new HashMap<>();
+            try (Stream<Reservation> active = reservationRepository.streamActive(clubId)) {
+                Iterator<Reservation> it = active.iterator();
+                while (it.hasNext()) {
+                    Reservation r = it.next();
+                    accumulate(acc, r, 1);
+                    counted.add(r.getId());
+                    if (acc.size() >= REBUILD_FLUSH_BUCKETS) {
+                        rollupRepository.applyDeltas(acc.values());
+                        acc.clear();
+                    }
+                }
+            }
+            rollupRepository.applyDeltas(acc.values());
+        } catch (RuntimeException e) {
+            // флаг остаётся, но помечается брошенным: инкременты копятся до повторной пересборки, её можно запускать сразу
+            rebuildRepository.save(new OccupancyRollupRebuild(clubId, new Date(0)));
+            System.err.println("[ROLLUP] rebuild of club " + clubId + " failed, run it again: " + e.getMessage());
+            throw e;
+        }
+
+        rebuildRepository.deleteById(clubId);
+        awaitGrace();
+        reconcile(clubId, startedAt, counted);
+        return counted.size();
+    }
+
+    private Date startRebuild(String clubId) {
+        Date now = new Date();
+        try {
+            rebuildRepository.insert(new OccupancyRollupRebuild(clubId, now));
+        } catch (DuplicateKeyException e) {
+            Date running = rebuildRepository.findById(clubId).map(OccupancyRollupRebuild::getStartedAt).orElse(null);
+            if (running != null && now.getTime() - running.getTime() < REBUILD_STALE_MS) {
+                throw new IllegalStateException("Rollup rebuild for club " + clubId + " is already running");
+            }
+            rebuildRepository.save(new OccupancyRollupRebuild(clubId, now));
+        }
+        return now;
+    }
+
+    /**
+     * Довести отложенные инкременты: бронь должна быть учтена, если после последнего отложенного перехода она ACTIVE.
+     * Разница с тем, что учёл курсор, — ровно ±1 по брони; всё остальное курсор уже посчитал.
+     */
+    private void reconcile(String clubId, Date startedAt, Set<String> counted) {
+        List<OccupancyRollupPending> pending = pendingRepository.findByClubId(clubId);
+        Map<String, Reservation> entered = new HashMap<>();
+        Map<String, Reservation> left = new HashMap<>();
+        for (OccupancyRollupPending p : pending) {
+            if (!startedAt.equals(p.getRebuildStartedAt())) continue; // от прерванной пересборки
+            (p.getSign() > 0 ? entered : left).put(p.getReservation().getId(), p.getReservation());
+        }
+
+        Map<String, OccupancyRollup.Delta> acc = new HashMap<>();
+        Set<String> ids = new HashSet<>(entered.keySet());
+        ids.addAll(left.keySet());
+        for (String id : ids) {
+            // выход из ACTIVE у брони последний, так что он и решает
+            boolean active = !left.containsKey(id);
+            boolean wasCounted = counted.contains(id);
+            if (active && !wasCounted) accumulate(acc, entered.get(id), 1);
+            else if (!active && wasCounted) accumulate(acc, left.get(id), -1);
+        }
+        rollupRepository.applyDeltas(acc.values());
+        pendingRepository.deleteAll(pending);
+    }
+
+    private void awaitGrace() {
+        try {
+            Thread.sleep(rebuildGraceMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rollup rebuild interrupted", e);
+        }
+    }
+
+    /**
+     * Бакеты клуба в [from, to) — индексированный range-read, по документу на бакет.
+     * utilisation = место-минуты / (мест × минут в бакете).
+     */
+    public List<Map<String, Object>> query(String clubId, OccupancyRollup.Granularity granularity, Date from, Date to) {
+        int seats = seatService.getCachedSeats(clubId).size();
+        long bucketMinutes = granularity == OccupancyRollup.Granularity.HOUR ? 60 : 24 * 60;
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (OccupancyRollup r : rollupRepository.findRange(clubId, granularity, from, to)) {
+            Map<String, Object> m = new HashMap<>();
+            m.put("bucketStart", r.getBucketStart());
+            m.put("occupancyMinutes", r.getOccupancyMinutes());
+            m.put("revenue", r.getRevenue());
+            m.put("reservations", r.getReservations());
+            m.put("utilisation", seats == 0 ? 0.0 : (double) r.getOccupancyMinutes() / (seats * bucketMinutes));
+            result.add(m);
+        }
+        return result;
+    }
+
+    private void accumulate(Map<String, OccupancyRollup.Delta> acc, Reservation r, int sign) {
+        if (r.getClubId() == null || r.getStart() == null || r.getEnd() == null || !r.getEnd().after(r.getStart())) return;
+        int seats = r.getSeatIds() == null ? 0 : r.getSeatIds().size();
+        long revenue = r.getTotalPrice() == null ? 0 : r.getTotalPrice();
+
+        Instant start = r.getStart().toInstant();
+        Instant end = r.getEnd().toInstant();
+        if (ChronoUnit.MINUTES.between(start, end) > MAX_SPAN_MINUTES) {
+            end = start.plus(MAX_SPAN_MINUTES, ChronoUnit.MINUTES);
+        }
+
+        ZonedDateTime startZ = start.atZone(zone);
+        delta(acc, r.getClubId(), OccupancyRollup.Granularity.HOUR, startZ.truncatedTo(ChronoUnit.HOURS)).add(0, sign * revenue, sign);
+        delta(acc, r.getClubId(), OccupancyRollup.Granularity.DAY, startZ.truncatedTo(ChronoUnit.DAYS)).add(0, sign * revenue, sign);
+
+        ZonedDateTime hour = startZ.truncatedTo(ChronoUnit.HOURS);
+        while (hour.toInstant().isBefore(end)) {
+            ZonedDateTime next = hour.plusHours(1);
+            Instant from = start.isAfter(hour.toInstant()) ? start : hour.toInstant();
+            Instant to = end.isBefore(next.toInstant()) ? end : next.toInstant();
+            long minutes = ChronoUnit.MINUTES.between(from, to) * seats * sign;
+            if (minutes != 0) {
+                delta(acc, r.getClubId(), OccupancyRollup.Granularity.HOUR, hour).add(minutes, 0, 0);
+                delta(acc, r.getClubId(), OccupancyRollup.Granularity.DAY, hour.truncatedTo(ChronoUnit.DAYS)).add(minutes, 0, 0);
+            }
+            hour = next;
+        }
+    }
+
+    private static OccupancyRollup.Delta delta(Map<String, OccupancyRollup.Delta> acc, String clubId,
+                                               OccupancyRollup.Granularity granularity, ZonedDateTime bucketStart) {
+        String key = clubId + ":" + granularity + ":"
+                + (granularity == OccupancyRollup.Granularity.HOUR ? HOUR_KEY : DAY_KEY).format(bucketStart);
+        return acc.computeIfAbsent(key, k -> new OccupancyRollup.Delta(k, clubId, granularity, Date.from(bucketStart.toInstant())));
+    }
+}
@@ -0,0 +1,80 @@
+package com.miras.smartclub.service;
+
+import com.miras.smartclub.changefeed.ChangeFeed;
+import com.miras.smartclub.model.ChangeEvent;
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.Seat;
+import com.miras.smartclub.model.SeatBlock;
+import com.miras.smartclub.repository.SeatBlockRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Операторские блокировки мест. Проверки доступности видят их через overlap-запросы ReservationRepository,
+ * поэтому здесь только запись, чтение и уведомления.
+ */
+@Service
+@RequiredArgsConstructor
+public class SeatBlockService {
+
+    private final SeatBlockRepository seatBlockRepository;
+    private final ReservationService reservationService;
+    private final SeatService seatService;
+    private final WaitlistService waitlistService;
+    private final ChangeFeed changeFeed;
+
+    /**
+     * Создать блокировку. Уже существующие брони на эти места не трогаются — они возвращаются вызывающему
+     * в {@code affected}, чтобы оператор решил, что с ними делать. Чтение пересечений и вставка идут под локом клуба
+     * (как у ReservationService.reserve): бронь, прошедшая проверку до блокировки, уже видна в {@code affected},
+     * а следующая проверка увидит блокировку.
+     */
+    public SeatBlock create(SeatBlock block, List<Reservation> affected) {
+        if (block.getClubId() == null || block.getSeatIds() == null || block.getSeatIds().isEmpty()
+                || block.getStart() == null || block.getEnd() == null) {
+            throw new IllegalArgumentException("clubId, seatIds, start and end required");
+        }
+        if (!block.getEnd().after(block.getStart())) throw new IllegalArgumentException("end must be after start");
+
+        Set<String> clubSeats = seatService.getCachedSeats(block.getClubId()).stream()
+                .map(Seat::getId).collect(Collectors.toSet());
+        List<String> unknown = block.getSeatIds().stream().filter(id -> !clubSeats.contains(id)).toList();
+        if (!unknown.isEmpty()) throw new IllegalArgumentException("Unknown seats for club: " + unknown);
+
+        SeatBlock saved = reservationService.underClubLock(block.getClubId(), () -> {
+            if (affected != null) {
+                // findConflicts учитывает и брони группы, ещё не записанные group commit'ом
+                for (Reservation r : reservationService.findConflicts(block.getClubId(), block.getSeatIds(), block.getStart(), block.getEnd())) {
+                    if (r.getStatus() != Reservation.ReservationStatus.BLOCKED) affected.add(r);
+                }
+            }
+            block.setId(null);
+            block.setCreatedAt(new Date());
+            return seatBlockRepository.insert(block);
+        });
+        publish(saved, "BLOCK");
+        System.out.println("[SEAT-BLOCK] " + saved.getClubId() + " seats=" + saved.getSeatIds() + " " + saved.getStart() + " - " + saved.getEnd() + " by " + saved.getCreatedBy());
+        return saved;
+    }
+
+    public List<SeatBlock> list(String clubId, Date from, Date to) {
+        return seatBlockRepository.findOverlapping(clubId, from, to);
+    }
+
+    public Optional<SeatBlock> delete(String blockId) {
+        Optional<SeatBlock> block = seatBlockRepository.findById(blockId);
+        block.ifPresent(b -> {
+            seatBlockRepository.deleteById(blockId);
+            publish(b, "UNBLOCK");
+            waitlistService.onSeatsReleased(b.getClubId(), b.getStart(), b.getEnd());
+        });
+        return block;
+    }
+
+    private void publish(SeatBlock b, String action) {
+        changeFeed.publish(new ChangeEvent(ChangeEvent.Entity.SEAT_BLOCK, b.getId(), b.getClubId(), action));
+    }
+}
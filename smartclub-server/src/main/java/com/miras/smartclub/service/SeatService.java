@@ -1,18 +1,111 @@
 package com.miras.smartclub.service;
 
+import com.miras.smartclub.changefeed.ChangeFeed;
+import com.miras.smartclub.model.ChangeEvent;
 import com.miras.smartclub.model.Seat;
 import com.miras.smartclub.repository.SeatRepository;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
-@RequiredArgsConstructor
 public class SeatService {
     private final SeatRepository seatRepository;
+    private final ChangeFeed changeFeed;
+
+    // схема зала меняется редко — держим в памяти, сбрасываем через invalidate.
+    // Кешируются только клубы с местами: пустой ответ (чужой id или места, записанные в Mongo мимо invalidate)
+    // каждый раз перечитывается. Размер ограничен — вытесняется давно не читанный клуб.
+    private final Map<String, List<Seat>> seatsByClub;
+    // растёт при каждом invalidate: загрузка, начатая до сброса, в кеш не попадает
+    private final AtomicLong generation = new AtomicLong();
+
+    public SeatService(SeatRepository seatRepository,
+                       ChangeFeed changeFeed,
+                       @Value("${smartclub.seats.cache-max-clubs:5000}") int maxClubs) {
+        this.seatRepository = seatRepository;
+        this.changeFeed = changeFeed;
+        this.seatsByClub = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<Seat>> eldest) {
+                return size() > maxClubs;
+            }
+        });
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        changeFeed.subscribe(e -> {
+            if (e.getEntity() == ChangeEvent.Entity.SEAT && e.getClubId() != null) invalidate(e.getClubId());
+        });
+    }
 
     public List<Seat> getSeatsByClub(String clubId) {
         return seatRepository.findByClubIdOrderByOrderAsc(clubId);
     }
+
+    /**
+     * Места клуба из кеша (неизменяемый список, отсортирован по order).
+     */
+    public List<Seat> getCachedSeats(String clubId) {
+        List<Seat> cached = seatsByClub.get(clubId);
+        if (cached != null) return cached;
+        // запрос вне лока карты
+        long gen = generation.get();
+        List<Seat> loaded = List.copyOf(seatRepository.findByClubIdOrderByOrderAsc(clubId));
+        cache(clubId, loaded, gen);
+        return loaded;
+    }
+
+    /**
+     * Места сразу для многих клубов: промахи кеша добираются одним запросом.
+     */
+    public Map<String, List<Seat>> getCachedSeats(Collection<String> clubIds) {
+        Map<String, List<Seat>> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : clubIds) {
+            List<Seat> cached = seatsByClub.get(id);
+            if (cached != null) result.put(id, cached);
+            else missing.add(id);
+        }
+        if (!missing.isEmpty()) {
+            long gen = generation.get();
+            Map<String, List<Seat>> loaded = new HashMap<>();
+            for (String id : missing) loaded.put(id, new ArrayList<>());
+            for (Seat s : seatRepository.findByClubIdIn(missing)) {
+                loaded.computeIfAbsent(s.getClubId(), k -> new ArrayList<>()).add(s);
+            }
+            loaded.forEach((id, list) -> {
+                list.sort(Comparator.comparingInt(Seat::getOrder));
+                List<Seat> frozen = List.copyOf(list);
+                cache(id, frozen, gen);
+                result.put(id, frozen);
+            });
+        }
+        return result;
+    }
+
+    private void cache(String clubId, List<Seat> seats, long loadedAt) {
+        if (seats.isEmpty()) return;
+        synchronized (seatsByClub) {
+            if (generation.get() == loadedAt) seatsByClub.put(clubId, seats);
+        }
+    }
+
+    public void invalidate(String clubId) {
+        synchronized (seatsByClub) {
+            generation.incrementAndGet();
+            seatsByClub.remove(clubId);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (seatsByClub) {
+            generation.incrementAndGet();
+            seatsByClub.clear();
+        }
+    }
 }
@@ -0,0 +1,126 @@
+package com.miras.smartclub.service;
+
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.Seat;
+import com.miras.smartclub.repository.ReservationRepository;
+import com.miras.smartclub.repository.SeatRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Поиск ближайших свободных окон: «когда освободятся N мест на D минут».
+ * Одно чтение броней на весь горизонт, дальше всё в памяти.
+ */
+@Service
+@RequiredArgsConstructor
+public class SlotSearchService {
+
+    private final ReservationRepository reservationRepository;
+    private final SeatRepository seatRepository;
+
+    /**
+     * Самые ранние окна [t, t + durationMinutes) с t в [from, from + horizon], где свободно
+     * не меньше {@code seatCount} подходящих мест. Кандидаты t — это {@code from} и моменты окончания броней:
+     * свободное окно может начаться только с них. Моменты окончаний по всем местам сливаются через приоритетную очередь.
+     */
+    public List<Map<String, Object>> findNextAvailable(String clubId, int seatCount, int durationMinutes, Boolean vip,
+                                                       Date from, long horizonMinutes, int limit) {
+        List<Seat> seats = new ArrayList<>();
+        for (Seat s : seatRepository.findByClubIdOrderByOrderAsc(clubId)) {
+            if (vip == null || vip == s.isVip()) seats.add(s);
+        }
+        if (seats.size() < seatCount || limit <= 0) return Collections.emptyList();
+
+        long duration = durationMinutes * 60_000L;
+        long fromMs = from.getTime();
+        long horizonEnd = fromMs + horizonMinutes * 60_000L;
+
+        List<Reservation> busy = reservationRepository.findActiveOverlappingAll(clubId, from, new Date(horizonEnd + duration));
+
+        // занятость каждого места: отсортированные и слитые интервалы [start, end)
+        Map<String, Integer> seatIndex = new HashMap<>();
+        for (int i = 0; i < seats.size(); i++) seatIndex.put(seats.get(i).getId(), i);
+        List<List<long[]>> perSeat = new ArrayList<>(seats.size());
+        for (int i = 0; i < seats.size(); i++) perSeat.add(new ArrayList<>());
+        for (Reservation r : busy) {
+            if (r.getSeatIds() == null || r.getStart() == null || r.getEnd() == null) continue;
+            for (String id : r.getSeatIds()) {
+                Integer idx = seatIndex.get(id);
+                if (idx != null) perSeat.get(idx).add(new long[]{r.getStart().getTime(), r.getEnd().getTime()});
+            }
+        }
+        for (int i = 0; i < perSeat.size(); i++) perSeat.set(i, merge(perSeat.get(i)));
+
+        // k-way merge окончаний: {время, место, номер интервала}
+        PriorityQueue<long[]> ends = new PriorityQueue<>(Comparator.comparingLong(e -> e[0]));
+        for (int i = 0; i < perSeat.size(); i++) {
+            if (!perSeat.get(i).isEmpty()) ends.add(new long[]{perSeat.get(i).get(0)[1], i, 0});
+        }
+
+        List<Map<String, Object>> windows = new ArrayList<>();
+        long candidate = fromMs;
+        long lastTried = Long.MIN_VALUE;
+        while (windows.size() < limit && candidate <= horizonEnd) {
+            if (candidate > lastTried) {
+                lastTried = candidate;
+                List<String> free = new ArrayList<>();
+                for (int i = 0; i < seats.size(); i++) {
+                    if (isFree(perSeat.get(i), candidate, candidate + duration)) free.add(seats.get(i).getId());
+                }
+                if (free.size() >= seatCount) {
+                    Map<String, Object> w = new HashMap<>();
+                    w.put("start", new Date(candidate));
+                    w.put("end", new Date(candidate + duration));
+                    w.put("freeCount", free.size());
+                    w.put("seatIds", new ArrayList<>(free.subList(0, seatCount)));
+                    windows.add(w);
+                }
+            }
+
+            long[] next = ends.poll();
+            if (next == null) break;
+            int seat = (int) next[1];
+            int k = (int) next[2] + 1;
+            if (k < perSeat.get(seat).size()) ends.add(new long[]{perSeat.get(seat).get(k)[1], seat, k});
+            candidate = Math.max(next[0], fromMs);
+        }
+        return windows;
+    }
+
+    private static List<long[]> merge(List<long[]> intervals) {
+        if (intervals.size() < 2) return intervals;
+        intervals.sort(Comparator.comparingLong(a -> a[0]));
+        List<long[]> merged = new ArrayList<>();
+        long[] cur = intervals.get(0).clone();
+        for (int i = 1; i < intervals.size(); i++) {
+            long[] next = intervals.get(i);
+            if (next[0] <= cur[1]) {
+                cur[1] = Math.max(cur[1], next[1]);
+            } else {
+                merged.add(cur);
+                cur = next.clone();
+            }
+        }
+        merged.add(cur);
+        return merged;
+    }
+
+    /**
+     * Свободно ли место на [start, end): бинпоиск последнего интервала, начавшегося раньше end.
+     */
+    private static boolean isFree(List<long[]> intervals, long start, long end) {
+        int lo = 0, hi = intervals.size() - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (intervals.get(mid)[0] < end) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found < 0 || intervals.get(found)[1] <= start;
+    }
+}
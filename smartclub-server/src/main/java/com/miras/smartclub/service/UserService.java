@@ -1,6 +1,7 @@
 package com.miras.smartclub.service;
 
 import com.miras.smartclub.enums.Role;
+import com.miras.smartclub.exception.ConflictException;
 import com.miras.smartclub.model.User;
 import com.miras.smartclub.model.dto.LoginRequest;
 import com.miras.smartclub.model.dto.RegisterRequest;
@@ -8,9 +9,12 @@ import com.miras.smartclub.repository.UserRepository;
 import com.miras.smartclub.util.PasswordValidator;
 import com.miras.smartclub.util.PhoneUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -24,9 +28,8 @@ public class UserService {
         String normalizedPhone = PhoneUtils.normalize(request.getPhone());
         request.setPhone(normalizedPhone);
 
-        Optional<User> existing = userRepository.findByPhone(normalizedPhone);
-        if (existing.isPresent()) {
-            throw new RuntimeException("User with this phone already exists");
+        if (normalizedPhone == null || normalizedPhone.isBlank()) {
+            throw new RuntimeException("Phone is required");
         }
 
         if (!PasswordValidator.isValid(request.getPassword())) {
@@ -40,7 +43,12 @@ public class UserService {
         user.setPassword(passwordEncoder.encode(request.getPassword()));
         user.setRole(Role.USER);
 
-        return userRepository.save(user);
+        // Уникальность телефона держит unique-индекс: один insert вместо findByPhone + save, без гонки
+        try {
+            return userRepository.insert(user);
+        } catch (DuplicateKeyException e) {
+            throw new ConflictException("User with this phone already exists");
+        }
     }
 
     public User login(LoginRequest request) {
@@ -67,19 +75,23 @@ public class UserService {
      * Обновление профиля (firstName, lastName, phone, password optional).
      */
     public User updateProfile(String userId, String firstName, String lastName, String phone, String rawPassword) {
-        User u = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
-
-        if (firstName != null) u.setFirstName(firstName);
-        if (lastName != null) u.setLastName(lastName);
-        if (phone != null && !phone.isBlank()) u.setPhone(PhoneUtils.normalize(phone));
+        Map<String, Object> fields = new LinkedHashMap<>();
+        if (firstName != null) fields.put("firstName", firstName);
+        if (lastName != null) fields.put("lastName", lastName);
+        if (phone != null && !phone.isBlank()) fields.put("phone", PhoneUtils.normalize(phone));
 
         if (rawPassword != null && !rawPassword.isBlank()) {
             if (!PasswordValidator.isValid(rawPassword)) {
                 throw new RuntimeException("Password does not meet policy");
             }
-            u.setPassword(passwordEncoder.encode(rawPassword));
+            fields.put("password", passwordEncoder.encode(rawPassword));
         }
 
-        return userRepository.save(u);
+        try {
+            return userRepository.updateFields(userId, fields)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+        } catch (DuplicateKeyException e) {
+            throw new ConflictException("User with this phone already exists");
+        }
     }
 }
@@ -0,0 +1,245 @@
+package com.miras.smartclub.service;
+
+import com.miras.smartclub.changefeed.ChangeFeed;
+import com.miras.smartclub.event.ReservationChangedEvent;
+import com.miras.smartclub.exception.ConflictException;
+import com.miras.smartclub.index.WaitlistIndex;
+import com.miras.smartclub.model.ChangeEvent;
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.WaitlistEntry;
+import com.miras.smartclub.repository.ReservationRepository;
+import com.miras.smartclub.repository.WaitlistRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Лист ожидания. Записи хранятся в Mongo, ожидающие (WAITING) дублируются в памяти — по WaitlistIndex на клуб.
+ * Когда места освобождаются (отмена брони, истёкший холд), кандидаты с пересекающимся окном берутся из индекса
+ * в порядке очереди, и первый, кому хватает мест, получает холд: PENDING-бронь с holdUntil, которая держит места,
+ * пока пользователь оплачивает. Невыкупленный холд снимает sweep, и места уходят следующему.
+ */
+@Service
+public class WaitlistService {
+
+    // окно ожидания не длиннее суток — на этом держится поиск по индексу
+    public static final long MAX_WINDOW_MS = 24L * 60 * 60 * 1000;
+
+    private final WaitlistRepository waitlistRepository;
+    private final ReservationRepository reservationRepository;
+    private final ReservationService reservationService;
+    private final ChangeFeed changeFeed;
+    private final ExecutorService queryExecutor;
+    private final long holdMs;
+
+    private final Map<String, WaitlistIndex> byClub = new ConcurrentHashMap<>();
+
+    public WaitlistService(WaitlistRepository waitlistRepository,
+                           ReservationRepository reservationRepository,
+                           ReservationService reservationService,
+                           ChangeFeed changeFeed,
+                           @Qualifier("queryExecutor") ExecutorService queryExecutor,
+                           @Value("${smartclub.waitlist.hold-minutes:10}") long holdMinutes) {
+        this.waitlistRepository = waitlistRepository;
+        this.reservationRepository = reservationRepository;
+        this.reservationService = reservationService;
+        this.changeFeed = changeFeed;
+        this.queryExecutor = queryExecutor;
+        this.holdMs = holdMinutes * 60 * 1000;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        // записи, изменённые на других узлах: перечитываем, чтобы их индекс совпадал с Mongo
+        changeFeed.subscribe(e -> {
+            if (e.getEntity() != ChangeEvent.Entity.WAITLIST || changeFeed.isLocal(e)) return;
+            Optional<WaitlistEntry> entry = waitlistRepository.findById(e.getEntityId());
+            if (entry.isPresent() && entry.get().getStatus() == WaitlistEntry.Status.WAITING) index(entry.get());
+            else unindex(e.getClubId(), e.getEntityId());
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<WaitlistEntry> waiting = waitlistRepository.findByStatus(WaitlistEntry.Status.WAITING);
+        waiting.forEach(this::index);
+        System.out.println("[WAITLIST] loaded " + waiting.size() + " waiting entries");
+    }
+
+    public WaitlistEntry join(WaitlistEntry entry) {
+        if (entry.getClubId() == null || entry.getStart() == null || entry.getEnd() == null || entry.getUserId() == null) {
+            throw new IllegalArgumentException("clubId, start and end required");
+        }
+        if (!entry.getEnd().after(entry.getStart())) throw new IllegalArgumentException("end must be after start");
+        if (entry.getEnd().getTime() - entry.getStart().getTime() > MAX_WINDOW_MS) {
+            throw new IllegalArgumentException("window must not exceed 24 hours");
+        }
+        if (!entry.getEnd().after(new Date())) throw new IllegalArgumentException("window is in the past");
+        if (entry.getSeatCount() <= 0) throw new IllegalArgumentException("positive seatCount required");
+
+        entry.setId(null);
+        entry.setStatus(WaitlistEntry.Status.WAITING);
+        entry.setCreatedAt(new Date());
+        WaitlistEntry saved = waitlistRepository.insert(entry);
+        index(saved);
+        publish(saved);
+
+        // места могли освободиться, пока пользователь смотрел на «занято»
+        queryExecutor.execute(() -> match(saved.getClubId(), saved.getStart(), saved.getEnd()));
+        return saved;
+    }
+
+    /**
+     * Выйти из листа. Если по записи уже выдан холд — он снимается и места уходят следующему.
+     */
+    public Optional<WaitlistEntry> leave(String entryId, String userId) {
+        Optional<WaitlistEntry> left = waitlistRepository.transition(entryId, userId,
+                WaitlistEntry.Status.WAITING, WaitlistEntry.Status.CANCELLED, null);
+        if (left.isEmpty()) {
+            left = waitlistRepository.transition(entryId, userId,
+                    WaitlistEntry.Status.HELD, WaitlistEntry.Status.CANCELLED, null);
+            left.ifPresent(e -> reservationService.expireHold(e.getHoldReservationId()));
+        }
+        left.ifPresent(e -> {
+            unindex(e.getClubId(), e.getId());
+            publish(e);
+        });
+        return left;
+    }
+
+    public List<WaitlistEntry> getUserEntries(String userId) {
+        return waitlistRepository.findByUserIdOrderByCreatedAtDesc(userId);
+    }
+
+    @EventListener
+    public void onReservationChanged(ReservationChangedEvent event) {
+        Reservation r = event.getReservation();
+        if (r.getHoldUntil() != null && !event.isCreated()) settleHold(event);
+        if (event.releasedSeats()) {
+            queryExecutor.execute(() -> match(r.getClubId(), r.getStart(), r.getEnd()));
+        }
+    }
+
+    private void settleHold(ReservationChangedEvent event) {
+        Reservation r = event.getReservation();
+        WaitlistEntry.Status to = event.becameActive() ? WaitlistEntry.Status.FULFILLED
+                : r.getStatus() == Reservation.ReservationStatus.CANCELLED ? WaitlistEntry.Status.EXPIRED
+                : null;
+        if (to == null) return;
+        waitlistRepository.findByHoldReservationId(r.getId()).ifPresent(e ->
+                waitlistRepository.transition(e.getId(), null, WaitlistEntry.Status.HELD, to, null)
+                        .ifPresent(this::publish));
+    }
+
+    /**
+     * Места освободились не через бронь (например, снята блокировка) — раздать их ожидающим.
+     */
+    public void onSeatsReleased(String clubId, Date start, Date end) {
+        queryExecutor.execute(() -> match(clubId, start, end));
+    }
+
+    /**
+     * Раздать освободившиеся места в окне [start, end) ожидающим, по очереди.
+     */
+    void match(String clubId, Date start, Date end) {
+        WaitlistIndex index = byClub.get(clubId);
+        if (index == null) return;
+
+        for (WaitlistEntry candidate : index.overlapping(start, end)) {
+            try {
+                grantHold(candidate);
+            } catch (RuntimeException e) {
+                System.err.println("[WAITLIST] hold for entry " + candidate.getId() + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void grantHold(WaitlistEntry candidate) {
+        // захватываем запись условным update — второй узел с тем же кандидатом сюда не пройдёт
+        Optional<WaitlistEntry> claimed = waitlistRepository.transition(candidate.getId(), null,
+                WaitlistEntry.Status.WAITING, WaitlistEntry.Status.HELD, null);
+        if (claimed.isEmpty()) {
+            unindex(candidate.getClubId(), candidate.getId());
+            return;
+        }
+
+        Date holdUntil = new Date(System.currentTimeMillis() + holdMs);
+        Reservation hold = new Reservation();
+        hold.setClubId(candidate.getClubId());
+        hold.setUserId(candidate.getUserId());
+        hold.setStart(candidate.getStart());
+        hold.setEnd(candidate.getEnd());
+        hold.setPackageId(candidate.getPackageId());
+        hold.setDurationMinutes((int) ((candidate.getEnd().getTime() - candidate.getStart().getTime()) / 60000));
+        hold.setStatus(Reservation.ReservationStatus.PENDING);
+        hold.setHoldUntil(holdUntil);
+
+        Reservation saved;
+        try {
+            saved = reservationService.reserveBestBlock(hold, candidate.getSeatCount(), candidate.getVip());
+        } catch (ConflictException e) {
+            // мест этому кандидату пока не хватает — возвращаем в очередь
+            waitlistRepository.transition(candidate.getId(), null, WaitlistEntry.Status.HELD, WaitlistEntry.Status.WAITING, null);
+            return;
+        } catch (RuntimeException e) {
+            // холд не создан (сбой записи брони): без возврата запись осталась бы HELD
+            // без брони, а sweep такие не трогает — кандидат выпал бы из очереди навсегда
+            try {
+                waitlistRepository.transition(candidate.getId(), null, WaitlistEntry.Status.HELD, WaitlistEntry.Status.WAITING, null);
+            } catch (RuntimeException back) {
+                e.addSuppressed(back);
+            }
+            throw e;
+        }
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("holdReservationId", saved.getId());
+        fields.put("holdUntil", holdUntil);
+        waitlistRepository.transition(candidate.getId(), null, WaitlistEntry.Status.HELD, WaitlistEntry.Status.HELD, fields)
+                .ifPresent(this::publish);
+        unindex(candidate.getClubId(), candidate.getId());
+        System.out.println("[WAITLIST] hold " + saved.getId() + " for entry " + candidate.getId() + " until " + holdUntil);
+    }
+
+    /**
+     * Снимает невыкупленные холды и неоплаченные в срок брони (отмена публикует событие → места уходят следующему в очереди)
+     * и закрывает записи, окно которых уже прошло.
+     */
+    @Scheduled(fixedDelayString = "${smartclub.waitlist.sweep-ms:15000}")
+    public void sweep() {
+        Date now = new Date();
+        for (Reservation r : reservationRepository.findByStatusAndHoldUntilBefore(Reservation.ReservationStatus.PENDING, now)) {
+            reservationService.expireHold(r.getId());
+        }
+        for (WaitlistEntry e : waitlistRepository.findByStatusAndEndBefore(WaitlistEntry.Status.WAITING, now)) {
+            waitlistRepository.transition(e.getId(), null, WaitlistEntry.Status.WAITING, WaitlistEntry.Status.EXPIRED, null)
+                    .ifPresent(this::publish);
+            unindex(e.getClubId(), e.getId());
+        }
+    }
+
+    private void index(WaitlistEntry e) {
+        byClub.computeIfAbsent(e.getClubId(), k -> new WaitlistIndex(MAX_WINDOW_MS)).add(e);
+    }
+
+    private void unindex(String clubId, String entryId) {
+        if (clubId == null) {
+            byClub.values().forEach(i -> i.remove(entryId));
+            return;
+        }
+        WaitlistIndex index = byClub.get(clubId);
+        if (index != null) index.remove(entryId);
+    }
+
+    private void publish(WaitlistEntry e) {
+        changeFeed.publish(new ChangeEvent(ChangeEvent.Entity.WAITLIST, e.getId(), e.getClubId(), String.valueOf(e.getStatus())));
+    }
+}
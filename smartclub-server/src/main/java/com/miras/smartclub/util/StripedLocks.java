@@ -0,0 +1,23 @@
+package com.miras.smartclub.util;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Фиксированный набор локов, ключ → лок по хешу. Память не растёт с числом ключей.
+ */
+public final class StripedLocks {
+
+    private final ReentrantLock[] locks;
+
+    public StripedLocks(int stripes) {
+        int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) locks[i] = new ReentrantLock();
+    }
+
+    public ReentrantLock get(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= (h >>> 16);
+        return locks[h & (locks.length - 1)];
+    }
+}
@@ -0,0 +1,36 @@
+package com.miras.smartclub.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+public final class TextUtils {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private TextUtils() {}
+
+    /**
+     * Нормализация для сравнения строк: trim, lower case, пунктуация → пробел, схлопывание пробелов.
+     */
+    public static String normalizeKey(String s) {
+        if (s == null) return "";
+        String t = s.trim().toLowerCase();
+        // remove punctuation characters that could break matching
+        t = t.replaceAll("[\\p{Punct}]+", " ");
+        t = t.replaceAll("\\s+", " ");
+        return t;
+    }
+
+    /**
+     * Токены для поиска: normalizeKey + ё→е, режем по всему, что не буква/цифра (кириллица и латиница).
+     */
+    public static List<String> tokenize(String s) {
+        String t = normalizeKey(s).replace('ё', 'е');
+        List<String> tokens = new ArrayList<>();
+        for (String part : NON_WORD.split(t)) {
+            if (!part.isEmpty()) tokens.add(part);
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,314 @@
+package com.miras.smartclub.service;
+
+import com.miras.smartclub.exception.SeatsConflictException;
+import com.miras.smartclub.model.Reservation;
+import com.miras.smartclub.model.ReservationTransition;
+import com.miras.smartclub.model.Seat;
+import com.miras.smartclub.repository.ReservationGroupCommit;
+import com.miras.smartclub.repository.ReservationRepository;
+import com.miras.smartclub.repository.SeatRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanWrapperImpl;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Нагрузочный тест конкурентного бронирования без Mongo и Spring-контекста: ReservationService поверх
+ * in-memory хранилища, N потоков гоняют смесь reserve / cancel / availability / activate (вебхук оплаты)
+ * по общему набору мест. Проверяет инвариант — ни одно место не занято двумя блокирующими бронями
+ * в пересекающихся окнах — и печатает пропускную способность и перцентили задержек по операциям.
+ * <p>
+ * Параметры (-D в mvn test): stress.threads, stress.ops, stress.seats, stress.slots,
+ * stress.mix=reserve:40,cancel:15,availability:30,activate:15.
+ */
+class ReservationConcurrencyStressTest {
+
+    private static final String CLUB = "club-1";
+    private static final long SLOT_MS = 30 * 60_000L;
+    private static final long BASE = 1_900_000_000_000L;
+
+    enum Op { RESERVE, CANCEL, AVAILABILITY, ACTIVATE }
+
+    @Test
+    void noSeatIsDoubleBookedUnderConcurrentLoad() throws Exception {
+        int threads = Integer.getInteger("stress.threads", 8);
+        int ops = Integer.getInteger("stress.ops", 4000);
+        int seats = Integer.getInteger("stress.seats", 12);
+        int slots = Integer.getInteger("stress.slots", 8);
+        Map<Op, Integer> mix = parseMix(System.getProperty("stress.mix", "reserve:40,cancel:15,availability:30,activate:15"));
+
+        InMemoryReservations store = new InMemoryReservations();
+        ReservationService service = service(store, seats);
+
+        // id созданных броней — цели для cancel и activate
+        List<Reservation> created = Collections.synchronizedList(new ArrayList<>());
+        Map<Op, Stats> stats = new EnumMap<>(Op.class);
+        for (Op op : Op.values()) stats.put(op, new Stats());
+        AtomicInteger remaining = new AtomicInteger(ops);
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String userId = "user-" + t;
+            workers.add(pool.submit(() -> {
+                ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                start.await();
+                while (remaining.getAndDecrement() > 0) {
+                    Op op = pick(mix, rnd);
+                    long t0 = System.nanoTime();
+                    boolean ok = true;
+                    try {
+                        switch (op) {
+                            case RESERVE -> created.add(service.reserve(randomReservation(userId, seats, slots, rnd)));
+                            case CANCEL -> {
+                                Reservation target = randomOf(created, rnd);
+                                ok = target != null && service.cancelOwnReservation(target.getId(), target.getUserId()).isPresent();
+                            }
+                            case AVAILABILITY -> {
+                                long from = BASE + rnd.nextInt(slots) * SLOT_MS;
+                                service.getAvailability(CLUB, new Date(from), new Date(from + 2 * SLOT_MS));
+                            }
+                            case ACTIVATE -> {
+                                Reservation target = randomOf(created, rnd);
+                                if (target == null) ok = false;
+                                else service.activateReservation(target.getId(), "pi_" + target.getId());
+                            }
+                        }
+                    } catch (SeatsConflictException e) {
+                        ok = false;
+                    } catch (Throwable e) {
+                        unexpected.add(e);
+                    }
+                    stats.get(op).record(System.nanoTime() - t0, ok);
+                }
+                return null;
+            }));
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Future<?> w : workers) w.get(5, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - began;
+        pool.shutdown();
+
+        report(threads, ops, elapsed, stats);
+
+        assertTrue(unexpected.isEmpty(), () -> "unexpected errors: " + unexpected);
+        List<String> violations = store.doubleBookings();
+        assertTrue(violations.isEmpty(), () -> "double-booked seats: " + violations);
+        long completed = stats.values().stream().mapToLong(s -> s.count.get()).sum();
+        assertEquals(ops, completed);
+    }
+
+    private static ReservationService service(InMemoryReservations store, int seatCount) {
+        ReservationRepository reservations = mock(ReservationRepository.class);
+        when(reservations.save(any(Reservation.class))).thenAnswer(inv -> store.save(inv.getArgument(0)));
+        when(reservations.findById(anyString())).thenAnswer(inv -> store.findById(inv.getArgument(0)));
+        when(reservations.findActiveOverlapping(anyString(), anyList(), any(Date.class), any(Date.class)))
+                .thenAnswer(inv -> store.blockingOverlapping(inv.getArgument(1), inv.getArgument(2), inv.getArgument(3)));
+        when(reservations.transition(anyString(), any(), anyCollection(), any(Reservation.ReservationStatus.class), any()))
+                .thenAnswer(inv -> store.transition(inv.getArgument(0), inv.getArgument(1),
+                        inv.getArgument(2), inv.getArgument(3), inv.getArgument(4)));
+
+        List<Seat> seats = new ArrayList<>();
+        for (int i = 0; i < seatCount; i++) {
+            Seat s = new Seat();
+            s.setId("seat-" + i);
+            s.setClubId(CLUB);
+            s.setLabel("PC" + (i + 1));
+            s.setOrder(i);
+            seats.add(s);
+        }
+        SeatRepository seatRepository = mock(SeatRepository.class);
+        when(seatRepository.findByClubIdOrderByOrderAsc(CLUB)).thenReturn(List.copyOf(seats));
+
+        // group commit выключен (isEnabled() мока — false): тест идёт по пути одиночных записей
+        ReservationGroupCommit groupCommit = mock(ReservationGroupCommit.class);
+        return new ReservationService(reservations, seatRepository, groupCommit, event -> { }, 40);
+    }
+
+    /**
+     * Как BookingController: бронь создаётся PENDING и держит места до срока оплаты holdUntil (его ставит
+     * ReservationService), после активации вебхуком — как ACTIVE.
+     * Окна — 1–3 слота по 30 минут со случайным сдвигом, чтобы пересечения были частичными.
+     */
+    private static Reservation randomReservation(String userId, int seats, int slots, ThreadLocalRandom rnd) {
+        Set<String> seatIds = new LinkedHashSet<>();
+        int count = 1 + rnd.nextInt(3);
+        while (seatIds.size() < Math.min(count, seats)) seatIds.add("seat-" + rnd.nextInt(seats));
+        long from = BASE + rnd.nextInt(slots) * SLOT_MS;
+
+        Reservation r = new Reservation();
+        r.setClubId(CLUB);
+        r.setUserId(userId);
+        r.setSeatIds(new ArrayList<>(seatIds));
+        r.setStart(new Date(from));
+        r.setEnd(new Date(from + (1 + rnd.nextInt(3)) * SLOT_MS));
+        r.setStatus(Reservation.ReservationStatus.PENDING);
+        return r;
+    }
+
+    private static Reservation randomOf(List<Reservation> list, ThreadLocalRandom rnd) {
+        synchronized (list) {
+            return list.isEmpty() ? null : list.get(rnd.nextInt(list.size()));
+        }
+    }
+
+    private static Map<Op, Integer> parseMix(String spec) {
+        Map<Op, Integer> mix = new EnumMap<>(Op.class);
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split(":");
+            mix.put(Op.valueOf(kv[0].trim().toUpperCase()), Integer.parseInt(kv[1].trim()));
+        }
+        return mix;
+    }
+
+    private static Op pick(Map<Op, Integer> mix, ThreadLocalRandom rnd) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int roll = rnd.nextInt(total);
+        for (Map.Entry<Op, Integer> e : mix.entrySet()) {
+            roll -= e.getValue();
+            if (roll < 0) return e.getKey();
+        }
+        throw new IllegalStateException("empty mix");
+    }
+
+    private static void report(int threads, int ops, long elapsedNanos, Map<Op, Stats> stats) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("[STRESS] %d threads, %d ops in %.2fs — %.0f ops/s%n", threads, ops, seconds, ops / seconds);
+        stats.forEach((op, s) -> {
+            if (s.count.get() == 0) return;
+            long[] sorted = s.sorted();
+            System.out.printf("[STRESS] %-12s n=%-6d ok=%-6d %8.0f ops/s  p50=%.3fms p95=%.3fms p99=%.3fms max=%.3fms%n",
+                    op, sorted.length, s.ok.get(), sorted.length / seconds,
+                    percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99), sorted[sorted.length - 1] / 1e6);
+        });
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int idx = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, idx)] / 1e6;
+    }
+
+    private static final class Stats {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong ok = new AtomicLong();
+        final Queue<Long> latencies = new ConcurrentLinkedQueue<>();
+
+        void record(long nanos, boolean success) {
+            count.incrementAndGet();
+            if (success) ok.incrementAndGet();
+            latencies.add(nanos);
+        }
+
+        long[] sorted() {
+            long[] a = latencies.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(a);
+            return a;
+        }
+    }
+
+    /**
+     * Хранилище с атомарностью Mongo на уровне одной операции: каждая операция атомарна сама по себе,
+     * но «проверить, потом вставить» — две операции, как и в базе. Наружу отдаются копии документов.
+     */
+    static final class InMemoryReservations {
+        private final Map<String, Reservation> docs = new HashMap<>();
+        private final AtomicLong ids = new AtomicLong();
+
+        synchronized Reservation save(Reservation r) {
+            if (r.getId() == null) r.setId("r" + ids.incrementAndGet());
+            docs.put(r.getId(), copy(r));
+            return r;
+        }
+
+        synchronized Optional<Reservation> findById(String id) {
+            return Optional.ofNullable(docs.get(id)).map(InMemoryReservations::copy);
+        }
+
+        synchronized List<Reservation> blockingOverlapping(List<String> seatIds, Date start, Date end) {
+            List<Reservation> result = new ArrayList<>();
+            for (Reservation r : docs.values()) {
+                if (blocking(r) && r.getStart().before(end) && r.getEnd().after(start)
+                        && !Collections.disjoint(r.getSeatIds(), seatIds)) {
+                    result.add(copy(r));
+                }
+            }
+            return result;
+        }
+
+        synchronized Optional<ReservationTransition> transition(String id, String ownerUserId,
+                                                               Collection<Reservation.ReservationStatus> from,
+                                                               Reservation.ReservationStatus to,
+                                                               Map<String, Object> fields) {
+            Reservation doc = docs.get(id);
+            if (doc == null || !from.contains(doc.getStatus())) return Optional.empty();
+            if (ownerUserId != null && !ownerUserId.equals(doc.getUserId())) return Optional.empty();
+
+            Reservation.ReservationStatus previous = doc.getStatus();
+            doc.setStatus(to);
+            doc.setVersion(doc.getVersion() == null ? 1L : doc.getVersion() + 1);
+            if (fields != null) fields.forEach(new BeanWrapperImpl(doc)::setPropertyValue);
+            return Optional.of(new ReservationTransition(copy(doc), previous));
+        }
+
+        /**
+         * Нарушения инварианта: пары блокирующих броней одного места с пересекающимися окнами.
+         */
+        synchronized List<String> doubleBookings() {
+            Map<String, List<Reservation>> bySeat = new HashMap<>();
+            for (Reservation r : docs.values()) {
+                if (!blocking(r)) continue;
+                for (String seat : r.getSeatIds()) bySeat.computeIfAbsent(seat, k -> new ArrayList<>()).add(r);
+            }
+            List<String> violations = new ArrayList<>();
+            bySeat.forEach((seat, list) -> {
+                list.sort(Comparator.comparing(Reservation::getStart));
+                Reservation last = null;
+                for (Reservation r : list) {
+                    if (last != null && r.getStart().before(last.getEnd())) {
+                        violations.add(seat + ": " + last.getId() + " / " + r.getId());
+                    }
+                    if (last == null || r.getEnd().after(last.getEnd())) last = r;
+                }
+            });
+            return violations;
+        }
+
+        private static boolean blocking(Reservation r) {
+            return r.getStatus() == Reservation.ReservationStatus.ACTIVE
+                    || (r.getStatus() == Reservation.ReservationStatus.PENDING && r.getHoldUntil() != null);
+        }
+
+        private static Reservation copy(Reservation r) {
+            Reservation c = new Reservation();
+            c.setId(r.getId());
+            c.setClubId(r.getClubId());
+            c.setUserId(r.getUserId());
+            c.setSeatIds(r.getSeatIds() == null ? null : new ArrayList<>(r.getSeatIds()));
+            c.setStart(r.getStart());
+            c.setEnd(r.getEnd());
+            c.setStatus(r.getStatus());
+            c.setCreatedAt(r.getCreatedAt());
+            c.setHoldUntil(r.getHoldUntil());
+            c.setPaymentIntentId(r.getPaymentIntentId());
+            c.setRefundStatus(r.getRefundStatus());
+            c.setRefundId(r.getRefundId());
+            c.setCancelledAt(r.getCancelledAt());
+            c.setCancelledBy(r.getCancelledBy());
+            c.setVersion(r.getVersion());
+            return c;
+        }
+    }
+}